@@ -0,0 +1,64 @@
+package benchmarks;
+
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ExtensionObject;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import types.CustomDataType;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+/**
+ * CustomDataType.Codec的编码和解码吞吐量，使用服务器注册的编解码器。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+    private final CustomDataType value = new CustomDataType("foo", uint(42), true);
+
+    private NodeId encodingId;
+    private ExtensionObject encoded;
+
+    @Setup
+    public void setup(ServerState state) throws Exception {
+        encodingId = state.nodeId("DataType.CustomDataType.BinaryEncoding");
+        encoded = encode(state);
+
+        //编解码器未注册时decode抛出异常
+        if (!value.equals(decode(state))) {
+            throw new IllegalStateException("codec for " + encodingId + " does not round-trip " + value);
+        }
+
+        state.checkReadable(Collections.singletonList(new ReadValueId(
+            state.nodeId("HelloWorld/CustomDataTypeVariable"), AttributeId.Value.uid(), null, null)));
+    }
+
+    @Benchmark
+    public ExtensionObject encode(ServerState state) {
+        return ExtensionObject.encodeDefaultBinary(state.server.getSerializationContext(), value, encodingId);
+    }
+
+    @Benchmark
+    public Object decode(ServerState state) {
+        return encoded.decode(state.server.getSerializationContext());
+    }
+
+}
@@ -0,0 +1,51 @@
+package benchmarks;
+
+import org.eclipse.milo.opcua.sdk.server.model.nodes.objects.BaseEventNode;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ByteString;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ushort;
+
+/**
+ * 事件的创建和发布，与CncNamespace中定时发布的事件相同。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventBenchmark {
+
+    @Benchmark
+    public void postEvent(ServerState state) throws Exception {
+        BaseEventNode eventNode = state.server.getEventFactory().createEvent(
+            new NodeId(state.namespace.getNamespaceIndex(), UUID.randomUUID()),
+            Identifiers.BaseEventType
+        );
+
+        eventNode.setEventId(ByteString.of(new byte[]{0, 1, 2, 3}));
+        eventNode.setEventType(Identifiers.BaseEventType);
+        eventNode.setSourceNode(Identifiers.Server);
+        eventNode.setTime(DateTime.now());
+        eventNode.setMessage(LocalizedText.english("event message!"));
+        eventNode.setSeverity(ushort(2));
+
+        state.server.getEventBus().post(eventNode);
+
+        eventNode.delete();
+    }
+
+}
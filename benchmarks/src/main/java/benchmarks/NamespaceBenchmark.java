@@ -0,0 +1,144 @@
+package benchmarks;
+
+import org.eclipse.milo.opcua.sdk.server.api.services.AttributeServices.ReadContext;
+import org.eclipse.milo.opcua.sdk.server.api.services.AttributeServices.WriteContext;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.eclipse.milo.opcua.stack.core.types.structured.WriteValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CncNamespace的读、写和采样吞吐量。
+ * <p>
+ * Each benchmark goes through the namespace's Read or Write service entry point, so locking, admission, metrics
+ * and JFR instrumentation are included along with the node's delegate chain:
+ * <ul>
+ * <li>ScalarTypes nodes carry a {@code ValueLoggingDelegate};</li>
+ * <li>OnlyAdminCanRead/String carries a {@code RestrictedAccessDelegate};</li>
+ * <li>Dynamic/Boolean carries an {@code AttributeDelegateChain} ending in a {@code ValueLoggingDelegate}.</li>
+ * </ul>
+ * All of them run without a session, because the server is never bound and no client ever opens one. The reads
+ * therefore take the path the subscription model uses to sample monitored items: they are counted and recorded as
+ * Sample rather than Read, {@code RestrictedAccessDelegate} falls back to internal access instead of evaluating an
+ * identity, and alias resolution is skipped. The sample benchmark differs from the others only in reading a whole
+ * batch with timestamps; none of them measures the per-session part of a client's Read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NamespaceBenchmark {
+
+    private static final String[] SCALARS = {
+        "Boolean", "Byte", "SByte", "Integer", "Int16", "Int32", "Int64", "UInteger", "UInt16", "UInt32",
+        "UInt64", "Float", "Double", "String", "DateTime", "Guid", "ByteString", "XmlElement", "LocalizedText"
+    };
+
+    private List<ReadValueId> scalar;
+    private List<ReadValueId> restricted;
+    private List<ReadValueId> dynamic;
+    private List<ReadValueId> sampleBatch;
+    private List<WriteValue> write;
+
+    @Setup
+    public void setup(ServerState state) throws Exception {
+        scalar = readValueIds(state, "HelloWorld/ScalarTypes/Int32");
+        restricted = readValueIds(state, "HelloWorld/OnlyAdminCanRead/String");
+        dynamic = readValueIds(state, "HelloWorld/Dynamic/Boolean");
+
+        String[] scalarIds = new String[SCALARS.length];
+        for (int i = 0; i < SCALARS.length; i++) {
+            scalarIds[i] = "HelloWorld/ScalarTypes/" + SCALARS[i];
+        }
+        sampleBatch = readValueIds(state, scalarIds);
+
+        write = Collections.singletonList(new WriteValue(
+            state.nodeId("HelloWorld/ScalarTypes/Int32"),
+            AttributeId.Value.uid(),
+            null,
+            DataValue.valueOnly(new Variant(42))
+        ));
+
+        state.checkReadable(scalar);
+        state.checkReadable(restricted);
+        state.checkReadable(dynamic);
+        state.checkReadable(sampleBatch);
+
+        List<StatusCode> written = write(state);
+        if (!written.get(0).isGood()) {
+            throw new IllegalStateException("write of " + write.get(0).getNodeId() + " returned " + written.get(0));
+        }
+    }
+
+    @Benchmark
+    public List<DataValue> readValueLogging(ServerState state) throws Exception {
+        return read(state, scalar, TimestampsToReturn.Neither);
+    }
+
+    @Benchmark
+    public List<DataValue> readRestrictedAccess(ServerState state) throws Exception {
+        return read(state, restricted, TimestampsToReturn.Neither);
+    }
+
+    @Benchmark
+    public List<DataValue> readDelegateChain(ServerState state) throws Exception {
+        return read(state, dynamic, TimestampsToReturn.Neither);
+    }
+
+    @Benchmark
+    public List<DataValue> sample(ServerState state) throws Exception {
+        return read(state, sampleBatch, TimestampsToReturn.Both);
+    }
+
+    @Benchmark
+    public List<StatusCode> write(ServerState state) throws Exception {
+        WriteContext context = new WriteContext(state.server, null);
+
+        state.namespace.write(context, write);
+
+        return context.getFuture().get();
+    }
+
+    private static List<DataValue> read(
+        ServerState state,
+        List<ReadValueId> readValueIds,
+        TimestampsToReturn timestamps) throws Exception {
+
+        ReadContext context = new ReadContext(state.server, null);
+
+        state.namespace.read(context, 0.0, timestamps, readValueIds);
+
+        return context.getFuture().get();
+    }
+
+    private static List<ReadValueId> readValueIds(ServerState state, String... ids) {
+        List<ReadValueId> readValueIds = new ArrayList<>(ids.length);
+
+        for (String id : ids) {
+            readValueIds.add(new ReadValueId(state.nodeId(id), AttributeId.Value.uid(), null, null));
+        }
+
+        return readValueIds;
+    }
+
+}
@@ -0,0 +1,166 @@
+package benchmarks;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.sdk.client.api.config.OpcUaClientConfig;
+import org.eclipse.milo.opcua.stack.client.DiscoveryClient;
+import org.eclipse.milo.opcua.stack.core.Stack;
+import org.eclipse.milo.opcua.stack.core.security.SecurityPolicy;
+import org.eclipse.milo.opcua.stack.core.transport.TransportProfile;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.EndpointDescription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.ExampleServer;
+import server.ServerConfig;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+/**
+ * 服务器读吞吐量与线程数的关系。
+ * <p>
+ * For every executor thread count a fresh server is started on ephemeral ports, {@code clients} clients each keep
+ * {@code pipeline} Read requests in flight against it for {@code seconds}, and the completed reads per second are
+ * logged. The Netty event loop is shared by the whole JVM and sized once, so the I/O thread count is varied by
+ * running the benchmark again with a different first argument. The servers build the demo nodes, which the reads
+ * target.
+ * <p>
+ * Usage: {@code java -cp benchmarks/target/benchmarks.jar benchmarks.ReadThroughputBenchmark
+ * <ioThreads> <clients> <pipeline> <seconds> <executorThreads>...}
+ */
+public class ReadThroughputBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadThroughputBenchmark.class);
+
+    private static final String[] NODES = {
+        "HelloWorld/ScalarTypes/Boolean",
+        "HelloWorld/ScalarTypes/Int32",
+        "HelloWorld/ScalarTypes/Double",
+        "HelloWorld/ScalarTypes/String",
+        "HelloWorld/ScalarTypes/DateTime"
+    };
+
+    public static void main(String[] args) throws Exception {
+        int ioThreads = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int pipeline = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        List<Integer> executorThreads = new ArrayList<>();
+        for (int i = 4; i < args.length; i++) {
+            executorThreads.add(Integer.parseInt(args[i]));
+        }
+        if (executorThreads.isEmpty()) {
+            int cores = Runtime.getRuntime().availableProcessors();
+            for (int n = 1; n <= cores * 2; n *= 2) {
+                executorThreads.add(n);
+            }
+        }
+
+        for (int threads : executorThreads) {
+            double readsPerSecond = run(ioThreads, threads, clients, pipeline, seconds);
+
+            logger.info("ioThreads={} executorThreads={} clients={} pipeline={}: {} reads/s",
+                ioThreads == 0 ? "default" : ioThreads, threads, clients, pipeline, String.format("%.0f", readsPerSecond));
+        }
+
+        Stack.releaseSharedResources();
+    }
+
+    private static double run(int ioThreads, int executorThreads, int clients, int pipeline, int seconds)
+        throws Exception {
+
+        ServerConfig config = ServerConfig.builder()
+            .setTcpBindPort(0)
+            .setHttpsBindPort(0)
+            .setSecurityDir(new File(System.getProperty("java.io.tmpdir"), "security-benchmark"))
+            .setIoThreads(ioThreads)
+            .setExecutorThreads(executorThreads)
+            .setDemoNodes(true)
+            .build();
+
+        ExampleServer server = new ExampleServer(config);
+        server.startup().get();
+
+        UShort namespaceIndex = server.getCncNamespace().getNamespaceIndex();
+
+        List<NodeId> nodeIds = new ArrayList<>();
+        for (String node : NODES) {
+            nodeIds.add(new NodeId(namespaceIndex, node));
+        }
+
+        List<OpcUaClient> connected = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            OpcUaClient client = createClient(server.getEndpointUrl());
+            client.connect().get();
+            connected.add(client);
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder completed = new LongAdder();
+
+        long start = System.nanoTime();
+
+        for (OpcUaClient client : connected) {
+            for (int i = 0; i < pipeline; i++) {
+                read(client, nodeIds, running, completed);
+            }
+        }
+
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+
+        long reads = completed.sum();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        for (OpcUaClient client : connected) {
+            client.disconnect().get();
+        }
+        server.shutdown().get();
+
+        return reads / elapsed;
+    }
+
+    //每完成一个请求立即发出下一个，保持固定数量的请求在途
+    private static void read(OpcUaClient client, List<NodeId> nodeIds, AtomicBoolean running, LongAdder completed) {
+        client.readValues(0.0, TimestampsToReturn.Neither, nodeIds).whenComplete((values, ex) -> {
+            if (ex != null) {
+                logger.warn("read failed: {}", ex.getMessage());
+            } else {
+                completed.increment();
+            }
+
+            if (running.get()) {
+                read(client, nodeIds, running, completed);
+            }
+        });
+    }
+
+    private static OpcUaClient createClient(String endpointUrl) throws Exception {
+        List<EndpointDescription> endpoints = DiscoveryClient.getEndpoints(endpointUrl).get();
+
+        EndpointDescription endpoint = endpoints.stream()
+            .filter(e -> e.getSecurityPolicyUri().equals(SecurityPolicy.None.getUri()))
+            .filter(e -> e.getTransportProfileUri().equals(TransportProfile.TCP_UASC_UABINARY.getUri()))
+            .findFirst()
+            .orElseThrow(() -> new Exception("no desired endpoints returned"));
+
+        OpcUaClientConfig config = OpcUaClientConfig.builder()
+            .setApplicationName(LocalizedText.english("eclipse milo opc-ua client"))
+            .setApplicationUri("urn:eclipse:milo:examples:client")
+            .setEndpoint(endpoint)
+            .setRequestTimeout(uint(5000))
+            .build();
+
+        return OpcUaClient.create(config);
+    }
+
+}
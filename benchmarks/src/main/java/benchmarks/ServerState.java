@@ -0,0 +1,78 @@
+package benchmarks;
+
+import org.eclipse.milo.opcua.sdk.server.OpcUaServer;
+import org.eclipse.milo.opcua.sdk.server.api.services.AttributeServices.ReadContext;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import server.CncNamespace;
+import server.ExampleServer;
+import server.ServerConfig;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * 进程内服务器，所有基准测试共用。
+ * <p>
+ * The server is built but never bound: the benchmarks call the namespace directly, so they measure the service path
+ * inside the server without the network and encoding in front of it. The namespace is built with its demo nodes,
+ * the "HelloWorld" folder the benchmarks read and write.
+ */
+@State(Scope.Benchmark)
+public class ServerState {
+
+    ExampleServer exampleServer;
+    OpcUaServer server;
+    CncNamespace namespace;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        ServerConfig config = ServerConfig.builder()
+            .setTcpBindPort(0)
+            .setHttpsBindPort(0)
+            .setSecurityDir(new File(System.getProperty("java.io.tmpdir"), "security-jmh"))
+            .setDemoNodes(true)
+            .build();
+
+        exampleServer = new ExampleServer(config);
+        server = exampleServer.getServer();
+        namespace = exampleServer.getCncNamespace();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        exampleServer.shutdown().get();
+    }
+
+    NodeId nodeId(String id) {
+        return new NodeId(namespace.getNamespaceIndex(), id);
+    }
+
+    /**
+     * 确认基准测试的目标结点可读，否则测到的只是错误路径
+     */
+    void checkReadable(List<ReadValueId> readValueIds) throws Exception {
+        ReadContext context = new ReadContext(server, null);
+
+        namespace.read(context, 0.0, TimestampsToReturn.Neither, readValueIds);
+
+        List<DataValue> values = context.getFuture().get();
+
+        for (int i = 0; i < readValueIds.size(); i++) {
+            StatusCode statusCode = values.get(i).getStatusCode();
+
+            if (statusCode == null || !statusCode.isGood()) {
+                throw new IllegalStateException(readValueIds.get(i).getNodeId() + " reads " + statusCode);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+package server;
+
+import org.openjdk.jol.info.GraphLayout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 比较NodeFactory实例和模板实例（享元）的内存占用。
+ * <p>
+ * Builds {@code instances} CNCType instances both ways on the same in-process server and reports how much the object
+ * graph reachable from the server grew, as measured by JOL from the actual object layouts. The growth covers the
+ * nodes, their references in the NodeManager and the map entries holding both, so each representation is charged for
+ * everything it really keeps. One instance of each kind is built first so the type node, the compiled template and
+ * the Machines folder don't count against either side. The server's scheduled tasks allocate a little in between,
+ * which is noise next to thousands of instances.
+ * <p>
+ * It sits in the server package to reach {@link CncNamespace#createCncInstanceWithNodeFactory}. Usage:
+ * {@code InstanceFootprint [instances]}.
+ */
+public class InstanceFootprint {
+
+    private static final Logger logger = LoggerFactory.getLogger(InstanceFootprint.class);
+
+    public static void main(String[] args) throws Exception {
+        int instances = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+
+        ServerConfig config = ServerConfig.builder()
+            .setTcpBindPort(0)
+            .setHttpsBindPort(0)
+            .setSecurityDir(new File(System.getProperty("java.io.tmpdir"), "security-footprint"))
+            .setDemoNodes(false)
+            .build();
+
+        ExampleServer exampleServer = new ExampleServer(config);
+        CncNamespace namespace = exampleServer.getCncNamespace();
+
+        try {
+            List<String> names = new ArrayList<>(instances + 1);
+            names.add("Warmup");
+            for (int i = 0; i < instances; i++) {
+                names.add("Machine" + i);
+            }
+
+            namespace.reconfigure(CncModel.of("Warmup"));
+            namespace.createCncInstanceWithNodeFactory("Warmup");
+
+            long before = reachableBytes(exampleServer);
+            Reconfiguration result = namespace.reconfigure(new CncModel(names));
+            long template = reachableBytes(exampleServer) - before;
+
+            before = reachableBytes(exampleServer);
+            for (String name : names.subList(1, names.size())) {
+                namespace.createCncInstanceWithNodeFactory(name);
+            }
+            long nodeFactory = reachableBytes(exampleServer) - before;
+
+            int nodesPerInstance = result.getAddedNodes() / instances;
+
+            logger.info("{} instances of {} nodes each", instances, nodesPerInstance);
+            logger.info("NodeFactory: {} bytes/instance, {} bytes/node",
+                nodeFactory / instances, nodeFactory / result.getAddedNodes());
+            logger.info("template:    {} bytes/instance, {} bytes/node",
+                template / instances, template / result.getAddedNodes());
+        } finally {
+            exampleServer.shutdown().get();
+        }
+    }
+
+    private static long reachableBytes(Object root) {
+        return GraphLayout.parseInstance(root).totalSize();
+    }
+
+}
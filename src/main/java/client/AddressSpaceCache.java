@@ -0,0 +1,694 @@
+package client;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaMonitoredItem;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaSubscription;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ByteString;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ExpandedNodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ExtensionObject;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UByte;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.BrowseDirection;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.BrowseResultMask;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.NodeClass;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.BrowseDescription;
+import org.eclipse.milo.opcua.stack.core.types.structured.BrowseResult;
+import org.eclipse.milo.opcua.stack.core.types.structured.ModelChangeStructureDataType;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReferenceDescription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ubyte;
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+/**
+ * 持久化的客户端地址空间缓存。
+ * <p>
+ * Keeps the forward references of every node browsed through {@link #browse(NodeId)}, together with the target's
+ * browse name, display name, node class and type definition, and the node class, data type, value rank and access
+ * level of every node looked up through {@link #attributes(NodeId)}, in a file per server application URI. Entries
+ * loaded from disk are served immediately but marked stale; the first time a stale entry is used it is browsed or read
+ * again in the background and replaced, so a reconnecting client is usable at once and only pays for the parts of the
+ * address space it actually visits.
+ * <p>
+ * The server's NamespaceArray is saved with the entries. When it has changed since, namespace indexes are remapped by
+ * URI and entries of namespaces that no longer exist are dropped. While open, the cache listens for
+ * GeneralModelChangeEvents on the Server object: the affected nodes are dropped and the nodes referencing them are
+ * marked stale. A model change event without a change list marks every entry stale.
+ * <p>
+ * At most one browse and one read per node are in flight: a miss and a background refresh of the same node share one
+ * request. A response is only cached if the node was not invalidated while it was outstanding, so a refresh that
+ * raced with a model change can't put the old references back.
+ */
+public class AddressSpaceCache {
+
+    //旧版本的缓存文件里可能有已不再使用的字段
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static final AttributeId[] NODE_ATTRIBUTES = {
+        AttributeId.NodeClass, AttributeId.DataType, AttributeId.ValueRank, AttributeId.AccessLevel
+    };
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Map<NodeId, Entry> entries = new ConcurrentHashMap<>();
+    //正在浏览的结点，未命中和后台刷新共用同一个请求
+    private final Map<NodeId, CompletableFuture<List<ReferenceDescription>>> refreshing = new ConcurrentHashMap<>();
+
+    private final Map<NodeId, AttributesEntry> attributes = new ConcurrentHashMap<>();
+    private final Map<NodeId, CompletableFuture<NodeAttributes>> reading = new ConcurrentHashMap<>();
+
+    //每次失效加一；结点在请求发出后失效过，响应就不再缓存
+    private final AtomicLong generation = new AtomicLong();
+    //结点最后一次失效时的代数
+    private final Map<NodeId, Long> invalidatedAt = new ConcurrentHashMap<>();
+    private volatile long allInvalidatedAt = 0L;
+
+    private final OpcUaClient client;
+    private final Path file;
+    private final String serverUri;
+    private final String[] namespaceArray;
+
+    private volatile UaSubscription subscription;
+
+    private AddressSpaceCache(OpcUaClient client, Path file, String serverUri, String[] namespaceArray) {
+        this.client = client;
+        this.file = file;
+        this.serverUri = serverUri;
+        this.namespaceArray = namespaceArray;
+    }
+
+    /**
+     * 打开服务器对应的缓存文件并订阅模型变更事件，客户端必须已连接
+     *
+     * @param directory the directory holding one cache file per server.
+     */
+    public static CompletableFuture<AddressSpaceCache> open(OpcUaClient client, Path directory) {
+        String serverUri = client.getConfig().getEndpoint().getServer().getApplicationUri();
+        Path file = directory.resolve(serverUri.replaceAll("[^A-Za-z0-9._-]", "_") + ".json");
+
+        return client.readValue(0.0, TimestampsToReturn.Neither, Identifiers.Server_NamespaceArray)
+            .thenCompose(value -> {
+                AddressSpaceCache cache = new AddressSpaceCache(
+                    client, file, serverUri, (String[]) value.getValue().getValue());
+
+                try {
+                    cache.load();
+                } catch (IOException e) {
+                    cache.logger.warn("Discarding unreadable address space cache {}", file, e);
+                    cache.entries.clear();
+                }
+
+                return cache.subscribeModelChanges()
+                    .exceptionally(ex -> {
+                        cache.logger.warn("Failed to subscribe to model change events", ex);
+                        return null;
+                    })
+                    .thenApply(v -> cache);
+            });
+    }
+
+    /**
+     * 返回结点的正向引用，缓存过期时在后台重新浏览
+     */
+    public CompletableFuture<List<ReferenceDescription>> browse(NodeId nodeId) {
+        Entry entry = entries.get(nodeId);
+
+        if (entry == null) {
+            return refresh(nodeId);
+        }
+
+        if (entry.stale) {
+            refresh(nodeId);
+        }
+
+        return CompletableFuture.completedFuture(entry.references);
+    }
+
+    /**
+     * 返回结点的类别、数据类型、值秩和访问级别，缓存过期时在后台重新读取
+     */
+    public CompletableFuture<NodeAttributes> attributes(NodeId nodeId) {
+        AttributesEntry entry = attributes.get(nodeId);
+
+        if (entry == null) {
+            return readAttributes(nodeId);
+        }
+
+        if (entry.stale) {
+            readAttributes(nodeId);
+        }
+
+        return CompletableFuture.completedFuture(entry.attributes);
+    }
+
+    /**
+     * 使结点的缓存失效，下次访问时重新浏览和读取
+     */
+    public void invalidate(NodeId nodeId) {
+        invalidatedAt.put(nodeId, generation.incrementAndGet());
+
+        entries.remove(nodeId);
+        attributes.remove(nodeId);
+    }
+
+    /**
+     * 将所有缓存标记为过期
+     */
+    public void invalidateAll() {
+        allInvalidatedAt = generation.incrementAndGet();
+
+        entries.replaceAll((nodeId, entry) -> entry.stale());
+        attributes.replaceAll((nodeId, entry) -> entry.stale());
+    }
+
+    public int size() {
+        return entries.size() + attributes.size();
+    }
+
+    /**
+     * 写入缓存文件，先写临时文件再替换
+     */
+    public void save() throws IOException {
+        CacheFile cacheFile = new CacheFile();
+        cacheFile.serverUri = serverUri;
+        cacheFile.namespaceArray = namespaceArray;
+        cacheFile.savedAt = System.currentTimeMillis();
+
+        List<CachedNode> nodes = new ArrayList<>(entries.size());
+
+        entries.forEach((nodeId, entry) -> {
+            CachedNode node = new CachedNode();
+            node.nodeId = nodeId.toParseableString();
+            node.references = new ArrayList<>(entry.references.size());
+
+            for (ReferenceDescription reference : entry.references) {
+                CachedReference cached = CachedReference.of(reference);
+                if (cached != null) {
+                    node.references.add(cached);
+                }
+            }
+
+            nodes.add(node);
+        });
+
+        cacheFile.nodes = nodes;
+
+        List<CachedAttributes> cachedAttributes = new ArrayList<>(attributes.size());
+
+        attributes.forEach((nodeId, entry) -> cachedAttributes.add(CachedAttributes.of(nodeId, entry.attributes)));
+
+        cacheFile.attributes = cachedAttributes;
+
+        Files.createDirectories(file.getParent());
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        MAPPER.writeValue(temp.toFile(), cacheFile);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        logger.info("Saved {} cached nodes and {} attribute sets to {}", nodes.size(), cachedAttributes.size(), file);
+    }
+
+    /**
+     * 保存缓存并删除模型变更订阅
+     */
+    public CompletableFuture<Void> close() {
+        try {
+            save();
+        } catch (IOException e) {
+            logger.warn("Failed to save address space cache {}", file, e);
+        }
+
+        UaSubscription s = subscription;
+
+        if (s == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return client.getSubscriptionManager()
+            .deleteSubscription(s.getSubscriptionId())
+            .thenApply(v -> null);
+    }
+
+    private void load() throws IOException {
+        if (!Files.exists(file)) return;
+
+        CacheFile cacheFile = MAPPER.readValue(file.toFile(), CacheFile.class);
+
+        //旧的命名空间索引 -> 当前索引，-1表示该命名空间已不存在
+        List<String> current = Arrays.asList(namespaceArray);
+        int[] namespaceMap = new int[cacheFile.namespaceArray.length];
+
+        for (int i = 0; i < namespaceMap.length; i++) {
+            namespaceMap[i] = current.indexOf(cacheFile.namespaceArray[i]);
+        }
+
+        for (CachedNode node : cacheFile.nodes) {
+            NodeId nodeId = remap(NodeId.parse(node.nodeId), namespaceMap);
+            if (nodeId == null) continue;
+
+            List<ReferenceDescription> references = new ArrayList<>(node.references.size());
+
+            for (CachedReference cached : node.references) {
+                ReferenceDescription reference = cached.toReference(namespaceMap);
+                if (reference != null) {
+                    references.add(reference);
+                }
+            }
+
+            entries.put(nodeId, new Entry(Collections.unmodifiableList(references), true));
+        }
+
+        for (CachedAttributes cached : cacheFile.attributes) {
+            NodeId nodeId = remap(NodeId.parse(cached.nodeId), namespaceMap);
+            if (nodeId == null) continue;
+
+            attributes.put(nodeId, new AttributesEntry(cached.toAttributes(namespaceMap), true));
+        }
+
+        logger.info("Loaded {} cached nodes and {} attribute sets from {}", entries.size(), attributes.size(), file);
+    }
+
+    private CompletableFuture<List<ReferenceDescription>> refresh(NodeId nodeId) {
+        CompletableFuture<List<ReferenceDescription>> future = new CompletableFuture<>();
+        CompletableFuture<List<ReferenceDescription>> inFlight = refreshing.putIfAbsent(nodeId, future);
+
+        if (inFlight != null) return inFlight;
+
+        browseNode(nodeId).whenComplete((references, ex) -> {
+            //先移出再完成，完成回调中再次浏览时会发出新的请求
+            refreshing.remove(nodeId, future);
+
+            if (ex != null) {
+                logger.debug("Failed to browse {}", nodeId, ex);
+                future.completeExceptionally(ex);
+            } else {
+                future.complete(references);
+            }
+        });
+
+        return future;
+    }
+
+    private CompletableFuture<List<ReferenceDescription>> browseNode(NodeId nodeId) {
+        long started = generation.get();
+
+        BrowseDescription description = new BrowseDescription(
+            nodeId,
+            BrowseDirection.Forward,
+            Identifiers.References,
+            true,
+            uint(0),
+            uint(BrowseResultMask.All.getValue())
+        );
+
+        List<ReferenceDescription> references = new ArrayList<>();
+
+        return client.browse(description)
+            .thenCompose(result -> collect(result, references))
+            .thenApply(result -> {
+                if (result.getStatusCode().getValue() == StatusCodes.Bad_NodeIdUnknown) {
+                    entries.remove(nodeId);
+                    return Collections.<ReferenceDescription>emptyList();
+                }
+
+                List<ReferenceDescription> list = Collections.unmodifiableList(references);
+
+                if (result.getStatusCode().isGood()) {
+                    entries.compute(nodeId, (id, old) ->
+                        invalidatedSince(nodeId, started) ? old : new Entry(list, false));
+                }
+
+                return list;
+            });
+    }
+
+    //跟随continuation point取完所有引用
+    private CompletableFuture<BrowseResult> collect(BrowseResult result, List<ReferenceDescription> references) {
+        if (result.getReferences() != null) {
+            references.addAll(Arrays.asList(result.getReferences()));
+        }
+
+        ByteString continuationPoint = result.getContinuationPoint();
+
+        if (!result.getStatusCode().isGood() || continuationPoint == null || continuationPoint.isNull()) {
+            return CompletableFuture.completedFuture(result);
+        }
+
+        return client.browseNext(false, Collections.singletonList(continuationPoint))
+            .thenCompose(response -> collect(response.getResults()[0], references));
+    }
+
+    private CompletableFuture<NodeAttributes> readAttributes(NodeId nodeId) {
+        CompletableFuture<NodeAttributes> future = new CompletableFuture<>();
+        CompletableFuture<NodeAttributes> inFlight = reading.putIfAbsent(nodeId, future);
+
+        if (inFlight != null) return inFlight;
+
+        long started = generation.get();
+
+        List<ReadValueId> readValueIds = new ArrayList<>(NODE_ATTRIBUTES.length);
+
+        for (AttributeId attributeId : NODE_ATTRIBUTES) {
+            readValueIds.add(new ReadValueId(nodeId, attributeId.uid(), null, QualifiedName.NULL_VALUE));
+        }
+
+        client.read(0.0, TimestampsToReturn.Neither, readValueIds).whenComplete((response, ex) -> {
+            reading.remove(nodeId, future);
+
+            if (ex != null) {
+                logger.debug("Failed to read attributes of {}", nodeId, ex);
+                future.completeExceptionally(ex);
+                return;
+            }
+
+            DataValue[] results = response.getResults();
+            DataValue nodeClass = results != null && results.length > 0 ? results[0] : null;
+
+            if (nodeClass == null || !nodeClass.getStatusCode().isGood()) {
+                if (nodeClass != null && nodeClass.getStatusCode().getValue() == StatusCodes.Bad_NodeIdUnknown) {
+                    attributes.remove(nodeId);
+                }
+
+                future.completeExceptionally(new IllegalStateException(
+                    "failed to read attributes of " + nodeId + ": "
+                        + (nodeClass != null ? nodeClass.getStatusCode() : "no results")));
+                return;
+            }
+
+            NodeAttributes read = new NodeAttributes(
+                NodeClass.from((Integer) nodeClass.getValue().getValue()),
+                (NodeId) valueOf(results, 1),
+                (Integer) valueOf(results, 2),
+                (UByte) valueOf(results, 3)
+            );
+
+            attributes.compute(nodeId, (id, old) ->
+                invalidatedSince(nodeId, started) ? old : new AttributesEntry(read, false));
+
+            future.complete(read);
+        });
+
+        return future;
+    }
+
+    //对象等结点没有数据类型等属性，返回null
+    private static Object valueOf(DataValue[] results, int index) {
+        if (index >= results.length || !results[index].getStatusCode().isGood()) return null;
+
+        return results[index].getValue().getValue();
+    }
+
+    private boolean invalidatedSince(NodeId nodeId, long started) {
+        return allInvalidatedAt > started || invalidatedAt.getOrDefault(nodeId, 0L) > started;
+    }
+
+    private CompletableFuture<Void> subscribeModelChanges() {
+        return client.getSubscriptionManager().createSubscription(1000.0).thenCompose(s -> {
+            subscription = s;
+
+            return s.createMonitoredItems(
+                TimestampsToReturn.Neither,
+                Collections.singletonList(ModelChangeEvents.request(client, s.nextClientHandle())),
+                (item, id) -> item.setEventConsumer(this::onModelChange)
+            );
+        }).thenAccept(items -> {
+            UaMonitoredItem item = items.get(0);
+
+            if (!item.getStatusCode().isGood()) {
+                logger.warn("Model change events unavailable ({}), cache is only revalidated on use",
+                    item.getStatusCode());
+            }
+        });
+    }
+
+    private void onModelChange(UaMonitoredItem item, Variant[] fields) {
+        Object changes = fields[ModelChangeEvents.CHANGES].getValue();
+
+        if (!(changes instanceof ExtensionObject[])) {
+            logger.info("Model changed, marking {} cached nodes stale", entries.size());
+            invalidateAll();
+            return;
+        }
+
+        Set<NodeId> affected = new HashSet<>();
+
+        for (ExtensionObject xo : (ExtensionObject[]) changes) {
+            Object decoded = xo.decode(client.getSerializationContext());
+
+            if (decoded instanceof ModelChangeStructureDataType) {
+                affected.add(((ModelChangeStructureDataType) decoded).getAffected());
+            }
+        }
+
+        if (affected.isEmpty()) return;
+
+        long g = generation.incrementAndGet();
+
+        affected.forEach(nodeId -> invalidatedAt.put(nodeId, g));
+
+        entries.keySet().removeAll(affected);
+        attributes.keySet().removeAll(affected);
+
+        //引用了这些结点的缓存也需要重新浏览，只遍历一次
+        entries.replaceAll((nodeId, entry) -> {
+            if (!entry.referencesAny(affected)) return entry;
+
+            invalidatedAt.put(nodeId, g);
+            return entry.stale();
+        });
+    }
+
+    private static NodeId remap(NodeId nodeId, int[] namespaceMap) {
+        int index = nodeId.getNamespaceIndex().intValue();
+
+        if (index >= namespaceMap.length || namespaceMap[index] < 0) return null;
+        if (namespaceMap[index] == index) return nodeId;
+
+        int mapped = namespaceMap[index];
+        Object identifier = nodeId.getIdentifier();
+
+        if (identifier instanceof UInteger) {
+            return new NodeId(mapped, (UInteger) identifier);
+        } else if (identifier instanceof String) {
+            return new NodeId(mapped, (String) identifier);
+        } else if (identifier instanceof UUID) {
+            return new NodeId(mapped, (UUID) identifier);
+        } else {
+            return new NodeId(mapped, (ByteString) identifier);
+        }
+    }
+
+    private static class Entry {
+
+        final List<ReferenceDescription> references;
+        final boolean stale;
+
+        Entry(List<ReferenceDescription> references, boolean stale) {
+            this.references = references;
+            this.stale = stale;
+        }
+
+        Entry stale() {
+            return stale ? this : new Entry(references, true);
+        }
+
+        boolean referencesAny(Set<NodeId> nodeIds) {
+            for (ReferenceDescription reference : references) {
+                if (reference.getNodeId().local().map(nodeIds::contains).orElse(false)) return true;
+            }
+            return false;
+        }
+
+    }
+
+    /**
+     * 结点的类别、数据类型、值秩和访问级别
+     * <p>
+     * Data type, value rank and access level are {@code null} for nodes that aren't variables.
+     */
+    public static class NodeAttributes {
+
+        private final NodeClass nodeClass;
+        private final NodeId dataType;
+        private final Integer valueRank;
+        private final UByte accessLevel;
+
+        NodeAttributes(NodeClass nodeClass, NodeId dataType, Integer valueRank, UByte accessLevel) {
+            this.nodeClass = nodeClass;
+            this.dataType = dataType;
+            this.valueRank = valueRank;
+            this.accessLevel = accessLevel;
+        }
+
+        public NodeClass getNodeClass() {
+            return nodeClass;
+        }
+
+        public NodeId getDataType() {
+            return dataType;
+        }
+
+        public Integer getValueRank() {
+            return valueRank;
+        }
+
+        public UByte getAccessLevel() {
+            return accessLevel;
+        }
+
+    }
+
+    private static class AttributesEntry {
+
+        final NodeAttributes attributes;
+        final boolean stale;
+
+        AttributesEntry(NodeAttributes attributes, boolean stale) {
+            this.attributes = attributes;
+            this.stale = stale;
+        }
+
+        AttributesEntry stale() {
+            return stale ? this : new AttributesEntry(attributes, true);
+        }
+
+    }
+
+    //以下为缓存文件的格式
+
+    static class CacheFile {
+
+        public String serverUri;
+        public String[] namespaceArray;
+        public long savedAt;
+        public List<CachedNode> nodes = new ArrayList<>();
+        public List<CachedAttributes> attributes = new ArrayList<>();
+
+    }
+
+    static class CachedNode {
+
+        public String nodeId;
+        public List<CachedReference> references = new ArrayList<>();
+
+    }
+
+    static class CachedAttributes {
+
+        public String nodeId;
+        public int nodeClass;
+        public String dataType;
+        public Integer valueRank;
+        public Integer accessLevel;
+
+        static CachedAttributes of(NodeId nodeId, NodeAttributes attributes) {
+            CachedAttributes cached = new CachedAttributes();
+            cached.nodeId = nodeId.toParseableString();
+            cached.nodeClass = attributes.getNodeClass().getValue();
+            cached.dataType = attributes.getDataType() != null ? attributes.getDataType().toParseableString() : null;
+            cached.valueRank = attributes.getValueRank();
+            cached.accessLevel = attributes.getAccessLevel() != null ? attributes.getAccessLevel().intValue() : null;
+            return cached;
+        }
+
+        //数据类型所在的命名空间已不存在时视为未知
+        NodeAttributes toAttributes(int[] namespaceMap) {
+            NodeId type = dataType != null ? remap(NodeId.parse(dataType), namespaceMap) : null;
+
+            return new NodeAttributes(
+                NodeClass.from(nodeClass),
+                type,
+                valueRank,
+                accessLevel != null ? ubyte(accessLevel) : null
+            );
+        }
+
+    }
+
+    static class CachedReference {
+
+        public String referenceTypeId;
+        public boolean forward;
+        public String nodeId;
+        public int browseNameNamespace;
+        public String browseName;
+        public String displayNameLocale;
+        public String displayName;
+        public int nodeClass;
+        public String typeDefinition;
+
+        /**
+         * @return the reference in file form, or {@code null} if its target is on another server.
+         */
+        static CachedReference of(ReferenceDescription reference) {
+            NodeId target = reference.getNodeId().local().orElse(null);
+            if (target == null) return null;
+
+            CachedReference cached = new CachedReference();
+            cached.referenceTypeId = reference.getReferenceTypeId().toParseableString();
+            cached.forward = reference.getIsForward();
+            cached.nodeId = target.toParseableString();
+            cached.browseNameNamespace = reference.getBrowseName().getNamespaceIndex().intValue();
+            cached.browseName = reference.getBrowseName().getName();
+            cached.displayNameLocale = reference.getDisplayName().getLocale();
+            cached.displayName = reference.getDisplayName().getText();
+            cached.nodeClass = reference.getNodeClass().getValue();
+            cached.typeDefinition = reference.getTypeDefinition().local()
+                .map(NodeId::toParseableString)
+                .orElse(null);
+            return cached;
+        }
+
+        ReferenceDescription toReference(int[] namespaceMap) {
+            NodeId referenceType = remap(NodeId.parse(referenceTypeId), namespaceMap);
+            NodeId target = remap(NodeId.parse(nodeId), namespaceMap);
+
+            if (referenceType == null || target == null) return null;
+            if (browseNameNamespace >= namespaceMap.length || namespaceMap[browseNameNamespace] < 0) return null;
+
+            NodeId type = typeDefinition != null ? remap(NodeId.parse(typeDefinition), namespaceMap) : null;
+
+            return new ReferenceDescription(
+                referenceType,
+                forward,
+                target.expanded(),
+                new QualifiedName(namespaceMap[browseNameNamespace], browseName),
+                new LocalizedText(displayNameLocale, displayName),
+                NodeClass.from(nodeClass),
+                type != null ? type.expanded() : ExpandedNodeId.NULL_VALUE
+            );
+        }
+
+    }
+
+}
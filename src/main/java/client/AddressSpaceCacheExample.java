@@ -0,0 +1,71 @@
+package client;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReferenceDescription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class AddressSpaceCacheExample implements ClientExample {
+
+    public static void main(String[] args) throws Exception {
+        AddressSpaceCacheExample example = new AddressSpaceCacheExample();
+
+        new ClientExampleRunner(example).run();
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Override
+    public void run(OpcUaClient client, CompletableFuture<OpcUaClient> future) throws Exception {
+        // synchronous connect
+        client.connect().get();
+
+        Path directory = Paths.get(System.getProperty("java.io.tmpdir"), "address-space-cache");
+
+        AddressSpaceCache cache = AddressSpaceCache.open(client, directory).get();
+
+        // the second run is served from the file written by the first
+        long start = System.nanoTime();
+        browseNode("", cache, Identifiers.RootFolder);
+        logger.info("Browsed {} nodes in {} ms", cache.size(), (System.nanoTime() - start) / 1_000_000);
+
+        cache.close().get();
+
+        future.complete(client);
+    }
+
+    private void browseNode(String indent, AddressSpaceCache cache, NodeId browseRoot) throws Exception {
+        List<ReferenceDescription> references = cache.browse(browseRoot).get();
+
+        for (ReferenceDescription rd : references) {
+            if (!rd.getIsForward() || !isHierarchical(rd)) continue;
+
+            logger.info("{} Node={}", indent, rd.getBrowseName().getName());
+
+            // recursively browse to children
+            rd.getNodeId().local().ifPresent(nodeId -> {
+                try {
+                    browseNode(indent + "  ", cache, nodeId);
+                } catch (Exception e) {
+                    logger.error("Browsing nodeId={} failed: {}", nodeId, e.getMessage(), e);
+                }
+            });
+        }
+    }
+
+    private static boolean isHierarchical(ReferenceDescription rd) {
+        NodeId type = rd.getReferenceTypeId();
+
+        return Identifiers.Organizes.equals(type) ||
+            Identifiers.HasComponent.equals(type) ||
+            Identifiers.HasProperty.equals(type);
+    }
+
+}
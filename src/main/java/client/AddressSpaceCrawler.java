@@ -0,0 +1,306 @@
+package client;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ByteString;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.BrowseDirection;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.BrowseResultMask;
+import org.eclipse.milo.opcua.stack.core.types.structured.BrowseDescription;
+import org.eclipse.milo.opcua.stack.core.types.structured.BrowseResult;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReferenceDescription;
+import org.eclipse.milo.opcua.stack.core.types.structured.ViewDescription;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+/**
+ * 并发受限的地址空间遍历器。
+ * <p>
+ * Browses the hierarchical references below a start node. Up to {@code nodesPerBrowse} nodes go into each Browse
+ * request, continuation points are followed with BrowseNext in batches of the same size, and no more than
+ * {@code maxOutstanding} requests are in flight at once. Every reference found is handed to the {@link Visitor} as
+ * soon as its response arrives; nothing of the tree is kept except the set of visited NodeIds, which stops the crawl
+ * from looping, and the frontier of nodes still to browse. The frontier is worked depth-first so it stays small.
+ * <p>
+ * The visitor is called outside the crawl's own lock, so a slow visitor doesn't hold up the bookkeeping of other
+ * responses. When the crawl fails or its future is cancelled, the continuation points it still holds, and any that
+ * arrive afterwards, are released with BrowseNext.
+ */
+public class AddressSpaceCrawler {
+
+    public interface Visitor {
+
+        /**
+         * Called once for every reference, one call at a time.
+         *
+         * @param parent    the node that was browsed.
+         * @param reference a forward hierarchical reference of {@code parent}.
+         */
+        void visit(NodeId parent, ReferenceDescription reference);
+
+    }
+
+    private static final ViewDescription DEFAULT_VIEW =
+        new ViewDescription(NodeId.NULL_VALUE, DateTime.MIN_VALUE, uint(0));
+
+    private final OpcUaClient client;
+    private final int nodesPerBrowse;
+    private final int maxOutstanding;
+    private final int maxReferencesPerNode;
+
+    /**
+     * @param nodesPerBrowse       nodes per Browse and continuation points per BrowseNext request.
+     * @param maxOutstanding       the most requests in flight at once.
+     * @param maxReferencesPerNode references the server returns per node before handing out a continuation point;
+     *                             {@code 0} leaves it to the server.
+     */
+    public AddressSpaceCrawler(OpcUaClient client, int nodesPerBrowse, int maxOutstanding, int maxReferencesPerNode) {
+        this.client = client;
+        this.nodesPerBrowse = Math.max(1, nodesPerBrowse);
+        this.maxOutstanding = Math.max(1, maxOutstanding);
+        this.maxReferencesPerNode = Math.max(0, maxReferencesPerNode);
+    }
+
+    /**
+     * 从{@code start}开始遍历
+     *
+     * @return a future completed with the number of references visited, or exceptionally if a request failed.
+     */
+    public CompletableFuture<Long> crawl(NodeId start, Visitor visitor) {
+        Crawl crawl = new Crawl(visitor);
+
+        synchronized (crawl) {
+            crawl.visited.add(start);
+            crawl.frontier.push(start);
+        }
+
+        //失败或取消时释放尚未使用的继续点
+        crawl.done.whenComplete((count, ex) -> {
+            if (ex != null) {
+                crawl.releaseContinuations();
+            }
+        });
+
+        crawl.pump();
+
+        return crawl.done;
+    }
+
+    private BrowseDescription browseDescription(NodeId nodeId) {
+        return new BrowseDescription(
+            nodeId,
+            BrowseDirection.Forward,
+            Identifiers.HierarchicalReferences,
+            true,
+            uint(0),
+            uint(BrowseResultMask.All.getValue())
+        );
+    }
+
+    private class Crawl {
+
+        final Visitor visitor;
+        final CompletableFuture<Long> done = new CompletableFuture<>();
+
+        //保证visitor依次调用，不与状态共用一把锁
+        final Object visitLock = new Object();
+
+        //以下状态由this保护
+        final Set<NodeId> visited = new HashSet<>();
+        final Deque<NodeId> frontier = new ArrayDeque<>();
+        final Deque<Continuation> continuations = new ArrayDeque<>();
+        int outstanding = 0;
+        long references = 0;
+
+        Crawl(Visitor visitor) {
+            this.visitor = visitor;
+        }
+
+        void pump() {
+            List<Runnable> requests = new ArrayList<>();
+
+            synchronized (this) {
+                if (done.isDone()) return;
+
+                while (outstanding < maxOutstanding && (!continuations.isEmpty() || !frontier.isEmpty())) {
+                    // continuation points hold server resources, so they are released first
+                    if (!continuations.isEmpty()) {
+                        List<Continuation> batch = new ArrayList<>();
+                        while (batch.size() < nodesPerBrowse && !continuations.isEmpty()) {
+                            batch.add(continuations.poll());
+                        }
+                        requests.add(() -> browseNext(batch));
+                    } else {
+                        List<NodeId> batch = new ArrayList<>();
+                        while (batch.size() < nodesPerBrowse && !frontier.isEmpty()) {
+                            batch.add(frontier.pop());
+                        }
+                        requests.add(() -> browse(batch));
+                    }
+
+                    outstanding++;
+                }
+
+                if (outstanding == 0) {
+                    done.complete(references);
+                    return;
+                }
+            }
+
+            requests.forEach(Runnable::run);
+        }
+
+        void browse(List<NodeId> nodeIds) {
+            List<BrowseDescription> descriptions = new ArrayList<>(nodeIds.size());
+            for (NodeId nodeId : nodeIds) {
+                descriptions.add(browseDescription(nodeId));
+            }
+
+            client.browse(DEFAULT_VIEW, uint(maxReferencesPerNode), descriptions).whenComplete((response, ex) -> {
+                if (ex != null) {
+                    fail(ex);
+                } else {
+                    completed(nodeIds, response.getResults());
+                }
+            });
+        }
+
+        void browseNext(List<Continuation> batch) {
+            List<NodeId> parents = new ArrayList<>(batch.size());
+            List<ByteString> continuationPoints = new ArrayList<>(batch.size());
+
+            for (Continuation continuation : batch) {
+                parents.add(continuation.parent);
+                continuationPoints.add(continuation.point);
+            }
+
+            client.browseNext(false, continuationPoints).whenComplete((response, ex) -> {
+                if (ex != null) {
+                    fail(ex);
+                } else {
+                    completed(parents, response.getResults());
+                }
+            });
+        }
+
+        void completed(List<NodeId> parents, BrowseResult[] results) {
+            List<NodeId> visitParents = new ArrayList<>();
+            List<ReferenceDescription> visitReferences = new ArrayList<>();
+            List<ByteString> orphans = new ArrayList<>();
+
+            synchronized (this) {
+                boolean stopped = done.isDone();
+
+                for (int i = 0; results != null && i < results.length && i < parents.size(); i++) {
+                    BrowseResult result = results[i];
+                    NodeId parent = parents.get(i);
+
+                    // nodes that can't be browsed are skipped, the rest of the crawl goes on
+                    if (!result.getStatusCode().isGood()) continue;
+
+                    ByteString continuationPoint = result.getContinuationPoint();
+                    boolean hasContinuation = continuationPoint != null
+                        && continuationPoint.isNotNull()
+                        && continuationPoint.length() > 0;
+
+                    //遍历已结束，只需释放继续点
+                    if (stopped) {
+                        if (hasContinuation) orphans.add(continuationPoint);
+                        continue;
+                    }
+
+                    ReferenceDescription[] references = result.getReferences();
+
+                    if (references != null) {
+                        for (ReferenceDescription reference : references) {
+                            this.references++;
+                            visitParents.add(parent);
+                            visitReferences.add(reference);
+
+                            Optional<NodeId> target = reference.getNodeId().local();
+
+                            if (target.isPresent() && visited.add(target.get())) {
+                                frontier.push(target.get());
+                            }
+                        }
+                    }
+
+                    if (hasContinuation) {
+                        continuations.add(new Continuation(parent, continuationPoint));
+                    }
+                }
+            }
+
+            release(orphans);
+
+            // the request still counts as outstanding until its references are visited, so the crawl can't
+            // complete while a visit is pending
+            try {
+                synchronized (visitLock) {
+                    for (int i = 0; i < visitReferences.size() && !done.isDone(); i++) {
+                        visitor.visit(visitParents.get(i), visitReferences.get(i));
+                    }
+                }
+            } catch (RuntimeException e) {
+                fail(e);
+                return;
+            }
+
+            synchronized (this) {
+                outstanding--;
+            }
+
+            pump();
+        }
+
+        void fail(Throwable ex) {
+            synchronized (this) {
+                outstanding--;
+            }
+
+            done.completeExceptionally(ex);
+        }
+
+        void releaseContinuations() {
+            List<ByteString> points = new ArrayList<>();
+
+            synchronized (this) {
+                continuations.forEach(continuation -> points.add(continuation.point));
+                continuations.clear();
+            }
+
+            release(points);
+        }
+
+        private void release(List<ByteString> points) {
+            for (int from = 0; from < points.size(); from += nodesPerBrowse) {
+                // best effort: the server also frees them when the session closes
+                client.browseNext(true, points.subList(from, Math.min(points.size(), from + nodesPerBrowse)));
+            }
+        }
+
+    }
+
+    private static class Continuation {
+
+        final NodeId parent;
+        final ByteString point;
+
+        Continuation(NodeId parent, ByteString point) {
+            this.parent = parent;
+            this.point = point;
+        }
+
+    }
+
+}
@@ -0,0 +1,48 @@
+package client;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.NodeClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AddressSpaceCrawlerExample implements ClientExample {
+
+    public static void main(String[] args) throws Exception {
+        AddressSpaceCrawlerExample example = new AddressSpaceCrawlerExample();
+
+        new ClientExampleRunner(example).run();
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Override
+    public void run(OpcUaClient client, CompletableFuture<OpcUaClient> future) throws Exception {
+        // synchronous connect
+        client.connect().get();
+
+        AddressSpaceCrawler crawler = new AddressSpaceCrawler(client, 100, 4, 1000);
+
+        AtomicLong variables = new AtomicLong();
+        long start = System.nanoTime();
+
+        crawler.crawl(Identifiers.RootFolder, (parent, reference) -> {
+            if (reference.getNodeClass() == NodeClass.Variable) {
+                variables.incrementAndGet();
+            }
+        }).whenComplete((references, ex) -> {
+            if (ex != null) {
+                logger.error("Crawl failed.", ex);
+            } else {
+                logger.info("Crawled {} references ({} variables) in {} ms",
+                    references, variables.get(), (System.nanoTime() - start) / 1_000_000);
+            }
+
+            future.complete(client);
+        });
+    }
+
+}
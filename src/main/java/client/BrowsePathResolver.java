@@ -0,0 +1,331 @@
+package client;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.sdk.client.api.SessionActivityListener;
+import org.eclipse.milo.opcua.sdk.client.api.UaSession;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaMonitoredItem;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaSubscription;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.UaException;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.MonitoringMode;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.BrowsePath;
+import org.eclipse.milo.opcua.stack.core.types.structured.BrowsePathResult;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoredItemCreateRequest;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoringParameters;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.eclipse.milo.opcua.stack.core.types.structured.RelativePath;
+import org.eclipse.milo.opcua.stack.core.types.structured.RelativePathElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+/**
+ * 批量解析浏览路径并按会话缓存结果。
+ * <p>
+ * Paths are written as browse names separated by {@code /}, e.g. {@code CNC/Machine42/X/Position}. A segment may be
+ * prefixed with a namespace index, {@code 2:Position}; without one the resolver's default namespace is used. Paths are
+ * followed over hierarchical references from the start node, the Objects folder unless another is given.
+ * <p>
+ * Paths that are not cached are sent together in TranslateBrowsePathsToNodeIds requests of at most the server's
+ * MaxNodesPerTranslateBrowsePathsToNodeIds, and concurrent lookups of the same path share one request. The cache is
+ * cleared when a new session is activated, when the server's NamespaceArray changes and on every model change event.
+ */
+public class BrowsePathResolver {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Map<PathKey, CompletableFuture<NodeId>> cache = new ConcurrentHashMap<>();
+
+    private final OpcUaClient client;
+    private final int defaultNamespaceIndex;
+    private final int maxPathsPerRequest;
+
+    //新会话激活时清空缓存，在create()中注册，close()时移除
+    private final SessionActivityListener sessionListener = new SessionActivityListener() {
+        @Override
+        public void onSessionActive(UaSession session) {
+            invalidate();
+        }
+    };
+
+    private volatile String[] namespaceArray;
+    private volatile UaSubscription subscription;
+
+    /**
+     * @param maxPathsPerRequest the most paths in one request; {@code 0} means no limit.
+     */
+    private BrowsePathResolver(OpcUaClient client, int defaultNamespaceIndex, int maxPathsPerRequest) {
+        this.client = client;
+        this.defaultNamespaceIndex = defaultNamespaceIndex;
+        this.maxPathsPerRequest = maxPathsPerRequest > 0 ? maxPathsPerRequest : Integer.MAX_VALUE;
+    }
+
+    /**
+     * 读取服务器的操作限制并订阅命名空间和模型变更，客户端必须已连接
+     * <p>
+     * The resolver listens for session activation on {@code client} until {@link #close()}.
+     */
+    public static CompletableFuture<BrowsePathResolver> create(OpcUaClient client, int defaultNamespaceIndex) {
+        return client.readValue(
+            0.0,
+            TimestampsToReturn.Neither,
+            Identifiers.Server_ServerCapabilities_OperationLimits_MaxNodesPerTranslateBrowsePathsToNodeIds
+        ).thenCompose(value -> {
+            Object limit = value.getValue().getValue();
+
+            int maxPathsPerRequest = limit instanceof UInteger
+                ? (int) Math.min(((UInteger) limit).longValue(), Integer.MAX_VALUE)
+                : 0;
+
+            BrowsePathResolver resolver = new BrowsePathResolver(client, defaultNamespaceIndex, maxPathsPerRequest);
+
+            client.addSessionActivityListener(resolver.sessionListener);
+
+            return resolver.subscribeChanges()
+                .exceptionally(ex -> {
+                    resolver.logger.warn("Failed to subscribe to namespace and model changes", ex);
+                    return null;
+                })
+                .thenApply(v -> resolver);
+        });
+    }
+
+    public CompletableFuture<NodeId> resolve(String path) {
+        return resolve(Identifiers.ObjectsFolder, path);
+    }
+
+    public CompletableFuture<NodeId> resolve(NodeId start, String path) {
+        return resolveAll(start, Collections.singletonList(path)).get(0);
+    }
+
+    /**
+     * 批量解析，未缓存的路径合并到尽量少的请求中
+     *
+     * @return one future per path, in order; a path that does not resolve completes exceptionally.
+     */
+    public List<CompletableFuture<NodeId>> resolveAll(NodeId start, List<String> paths) {
+        List<CompletableFuture<NodeId>> futures = new ArrayList<>(paths.size());
+        List<PathKey> missing = new ArrayList<>();
+        List<CompletableFuture<NodeId>> missingFutures = new ArrayList<>();
+
+        for (String path : paths) {
+            PathKey key = new PathKey(start, path);
+
+            CompletableFuture<NodeId> created = new CompletableFuture<>();
+            CompletableFuture<NodeId> future = cache.putIfAbsent(key, created);
+
+            if (future == null) {
+                future = created;
+                missing.add(key);
+                missingFutures.add(created);
+            }
+
+            futures.add(future);
+        }
+
+        for (int from = 0; from < missing.size(); from += maxPathsPerRequest) {
+            int to = Math.min(missing.size(), from + maxPathsPerRequest);
+
+            translate(missing.subList(from, to), missingFutures.subList(from, to));
+        }
+
+        return futures;
+    }
+
+    public List<CompletableFuture<NodeId>> resolveAll(List<String> paths) {
+        return resolveAll(Identifiers.ObjectsFolder, paths);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidate() {
+        cache.clear();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * 移除会话监听，删除命名空间和模型变更订阅
+     */
+    public CompletableFuture<Void> close() {
+        client.removeSessionActivityListener(sessionListener);
+
+        UaSubscription s = subscription;
+
+        if (s == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return client.getSubscriptionManager()
+            .deleteSubscription(s.getSubscriptionId())
+            .thenApply(v -> null);
+    }
+
+    private void translate(List<PathKey> keys, List<CompletableFuture<NodeId>> futures) {
+        List<BrowsePath> browsePaths = new ArrayList<>(keys.size());
+
+        for (PathKey key : keys) {
+            browsePaths.add(new BrowsePath(key.start, relativePath(key.path)));
+        }
+
+        client.translateBrowsePaths(browsePaths).whenComplete((response, ex) -> {
+            BrowsePathResult[] results = ex == null ? response.getResults() : null;
+
+            for (int i = 0; i < keys.size(); i++) {
+                CompletableFuture<NodeId> future = futures.get(i);
+
+                if (ex != null) {
+                    fail(keys.get(i), future, ex);
+                } else if (results == null || i >= results.length) {
+                    fail(keys.get(i), future,
+                        new IllegalStateException("TranslateBrowsePaths response is missing results"));
+                } else {
+                    BrowsePathResult result = results[i];
+
+                    NodeId nodeId = result.getStatusCode().isGood() && result.getTargets() != null
+                        && result.getTargets().length > 0
+                        ? result.getTargets()[0].getTargetId().local().orElse(null)
+                        : null;
+
+                    if (nodeId != null) {
+                        future.complete(nodeId);
+                    } else {
+                        fail(keys.get(i), future, new UaException(
+                            result.getStatusCode(), "failed to resolve " + keys.get(i).path));
+                    }
+                }
+            }
+        });
+    }
+
+    //失败的结果不缓存，下次请求时重试
+    private void fail(PathKey key, CompletableFuture<NodeId> future, Throwable ex) {
+        cache.remove(key, future);
+        future.completeExceptionally(ex);
+    }
+
+    private RelativePath relativePath(String path) {
+        String[] segments = path.split("/");
+        List<RelativePathElement> elements = new ArrayList<>(segments.length);
+
+        for (String segment : segments) {
+            if (segment.isEmpty()) continue;
+
+            int colon = segment.indexOf(':');
+            QualifiedName name;
+
+            if (colon > 0 && segment.substring(0, colon).chars().allMatch(Character::isDigit)) {
+                name = new QualifiedName(Integer.parseInt(segment.substring(0, colon)), segment.substring(colon + 1));
+            } else {
+                name = new QualifiedName(defaultNamespaceIndex, segment);
+            }
+
+            elements.add(new RelativePathElement(Identifiers.HierarchicalReferences, false, true, name));
+        }
+
+        return new RelativePath(elements.toArray(new RelativePathElement[0]));
+    }
+
+    private CompletableFuture<Void> subscribeChanges() {
+        return client.getSubscriptionManager().createSubscription(1000.0).thenCompose(s -> {
+            subscription = s;
+
+            ReadValueId namespaceArrayId = new ReadValueId(
+                Identifiers.Server_NamespaceArray,
+                AttributeId.Value.uid(),
+                null,
+                QualifiedName.NULL_VALUE
+            );
+
+            MonitoringParameters parameters = new MonitoringParameters(
+                s.nextClientHandle(),
+                1000.0,
+                null,
+                uint(1),
+                true
+            );
+
+            List<MonitoredItemCreateRequest> requests = Arrays.asList(
+                new MonitoredItemCreateRequest(namespaceArrayId, MonitoringMode.Reporting, parameters),
+                ModelChangeEvents.request(client, s.nextClientHandle())
+            );
+
+            return s.createMonitoredItems(TimestampsToReturn.Neither, requests, (item, id) -> {
+                if (id == 0) {
+                    item.setValueConsumer(this::onNamespaceArray);
+                } else {
+                    item.setEventConsumer((i, fields) -> {
+                        logger.debug("Model changed, clearing {} cached paths", cache.size());
+                        invalidate();
+                    });
+                }
+            });
+        }).thenAccept(items -> {
+            for (UaMonitoredItem item : items) {
+                if (!item.getStatusCode().isGood()) {
+                    logger.warn("Monitoring {} failed: {}", item.getReadValueId().getNodeId(), item.getStatusCode());
+                }
+            }
+        });
+    }
+
+    private void onNamespaceArray(UaMonitoredItem item, DataValue value) {
+        Object o = value.getValue().getValue();
+
+        if (!(o instanceof String[])) return;
+
+        String[] previous = namespaceArray;
+        namespaceArray = (String[]) o;
+
+        //第一次通知只是当前值
+        if (previous != null && !Arrays.equals(previous, namespaceArray)) {
+            logger.info("NamespaceArray changed, clearing {} cached paths", cache.size());
+            invalidate();
+        }
+    }
+
+    private static class PathKey {
+
+        final NodeId start;
+        final String path;
+
+        PathKey(NodeId start, String path) {
+            this.start = start;
+            this.path = path;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            PathKey that = (PathKey) o;
+            return start.equals(that.start) && path.equals(that.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(start, path);
+        }
+
+    }
+
+}
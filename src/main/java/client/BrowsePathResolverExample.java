@@ -0,0 +1,62 @@
+package client;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class BrowsePathResolverExample implements ClientExample {
+
+    public static void main(String[] args) throws Exception {
+        BrowsePathResolverExample example = new BrowsePathResolverExample();
+
+        new ClientExampleRunner(example).run();
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Override
+    public void run(OpcUaClient client, CompletableFuture<OpcUaClient> future) throws Exception {
+        // synchronous connect
+        client.connect().get();
+
+        BrowsePathResolver resolver = BrowsePathResolver.create(client, 2).get();
+
+        List<String> paths = Arrays.asList(
+            "HelloWorld/ScalarTypes/Boolean",
+            "HelloWorld/ScalarTypes/Int32",
+            "HelloWorld/ScalarTypes/UInt64",
+            "HelloWorld/Dynamic/Double",
+            "HelloWorld/NoSuchNode"
+        );
+
+        // all five paths go out in one request
+        List<CompletableFuture<NodeId>> nodeIds = resolver.resolveAll(paths);
+
+        for (int i = 0; i < paths.size(); i++) {
+            String path = paths.get(i);
+
+            nodeIds.get(i).whenComplete((nodeId, ex) -> {
+                if (ex != null) {
+                    logger.info("{} -> {}", path, ex.getMessage());
+                } else {
+                    logger.info("{} -> {}", path, nodeId);
+                }
+            });
+        }
+
+        CompletableFuture.allOf(nodeIds.toArray(new CompletableFuture[0])).exceptionally(ex -> null).get();
+
+        // served from the cache
+        logger.info("cached: {}", resolver.resolve("HelloWorld/ScalarTypes/Int32").get());
+
+        resolver.close().get();
+
+        future.complete(client);
+    }
+
+}
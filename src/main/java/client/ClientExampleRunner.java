@@ -63,13 +63,21 @@ public class ClientExampleRunner {
     }
 
     private OpcUaClient createClient() throws Exception {
+        return createClient(clientExample);
+    }
+
+    /**
+     * 按示例的端点、安全策略和身份创建客户端，尚未连接
+     */
+    static OpcUaClient createClient(ClientExample clientExample) throws Exception {
+        Logger logger = LoggerFactory.getLogger(ClientExampleRunner.class);
+
         Path securityTempDir = Paths.get(System.getProperty("java.io.tmpdir"), "security");
         Files.createDirectories(securityTempDir);
         if (!Files.exists(securityTempDir)) {
             throw new Exception("unable to create security dir: " + securityTempDir);
         }
-        LoggerFactory.getLogger(getClass())
-            .info("security temp dir: {}", securityTempDir.toAbsolutePath());
+        logger.info("security temp dir: {}", securityTempDir.toAbsolutePath());
 
         KeyStoreLoader loader = new KeyStoreLoader().load(securityTempDir);
 
@@ -109,6 +117,12 @@ public class ClientExampleRunner {
             .setEndpoint(endpoint)
             .setIdentityProvider(clientExample.getIdentityProvider())
             .setRequestTimeout(uint(5000))
+            // a dead connection is noticed within ~3s and reconnected; the session outlives
+            // short outages so it can be reactivated and its subscriptions kept
+            .setKeepAliveInterval(uint(1000))
+            .setKeepAliveTimeout(uint(1000))
+            .setKeepAliveFailuresAllowed(uint(2))
+            .setSessionTimeout(uint(120_000))
             .build();
 
         return OpcUaClient.create(config);
@@ -0,0 +1,375 @@
+package client;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaMonitoredItem;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaSubscription;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.Stack;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.MonitoringMode;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.CallMethodRequest;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoredItemCreateRequest;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoringParameters;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+/**
+ * 多会话负载生成器，用于评估服务器容量。
+ * <p>
+ * Opens {@code sessions} clients through {@link ClientExampleRunner#createClient(ClientExample)}. Each one creates a
+ * subscription with {@code items} monitored items over the example nodes and issues Read, Write and Call requests in
+ * the configured mix at a fixed rate. Latencies are recorded in HDR histograms from the moment each request was
+ * scheduled to be sent, not when it actually went out, so a server that falls behind shows up in the tail instead of
+ * being hidden by a slower send rate. Only Good results go into the histograms; results with a bad status and
+ * requests that failed outright are counted separately, so an error path that answers quickly can't make the
+ * latencies look better. The report is logged and written to {@code report}.
+ * <p>
+ * The target server must be built with its demo nodes ({@code -Dcnc.demoNodes=true}); every session checks that the
+ * nodes it reads, writes and calls exist before it starts.
+ * <p>
+ * Usage: {@code LoadGenerator [key=value]...}, see {@link LoadProfile}.
+ */
+public class LoadGenerator implements ClientExample {
+
+    public static void main(String[] args) throws Exception {
+        LoadProfile profile = LoadProfile.parse(args);
+
+        new LoadGenerator(profile).run();
+    }
+
+    private static final String NAMESPACE_URI = "urn:eclipse:milo:cnc";
+
+    private static final String[] READ_NODES = {
+        "HelloWorld/ScalarTypes/Boolean",
+        "HelloWorld/ScalarTypes/Int32",
+        "HelloWorld/ScalarTypes/Double",
+        "HelloWorld/ScalarTypes/String",
+        "HelloWorld/Dynamic/Boolean",
+        "HelloWorld/Dynamic/Int32",
+        "HelloWorld/Dynamic/Double"
+    };
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final LoadProfile profile;
+
+    private final Operation read = new Operation("Read");
+    private final Operation write = new Operation("Write");
+    private final Operation call = new Operation("Call");
+
+    private final LongAdder notifications = new LongAdder();
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(
+        Math.max(2, Runtime.getRuntime().availableProcessors()),
+        new ThreadFactoryBuilder().setNameFormat("load-generator-%d").setDaemon(true).build()
+    );
+
+    public LoadGenerator(LoadProfile profile) {
+        this.profile = profile;
+    }
+
+    @Override
+    public String getEndpointUrl() {
+        return profile.getEndpointUrl();
+    }
+
+    /**
+     * 单个会话的负载：连接、订阅，然后按固定速率发送请求
+     */
+    @Override
+    public void run(OpcUaClient client, CompletableFuture<OpcUaClient> future) throws Exception {
+        client.connect().get();
+
+        int ns = namespaceIndex(client);
+
+        List<NodeId> readNodes = new ArrayList<>();
+        for (String node : READ_NODES) {
+            readNodes.add(new NodeId(ns, node));
+        }
+
+        NodeId writeNode = new NodeId(ns, "HelloWorld/ScalarTypes/Int32");
+        NodeId objectId = new NodeId(ns, "HelloWorld");
+        NodeId methodId = new NodeId(ns, "HelloWorld/sqrt(x)");
+
+        checkTargets(client, readNodes, writeNode, methodId);
+
+        subscribe(client, readNodes);
+
+        if (profile.getOperationsPerSecond() <= 0) return;
+
+        long periodNanos = (long) (1e9 / profile.getOperationsPerSecond());
+        long startNanos = System.nanoTime();
+        long[] tick = new long[1];
+
+        ScheduledFuture<?> task = scheduler.scheduleAtFixedRate(() -> {
+            long intended = startNanos + tick[0]++ * periodNanos;
+
+            int total = profile.getReadWeight() + profile.getWriteWeight() + profile.getCallWeight();
+            int pick = ThreadLocalRandom.current().nextInt(total);
+
+            if (pick < profile.getReadWeight()) {
+                NodeId nodeId = readNodes.get(ThreadLocalRandom.current().nextInt(readNodes.size()));
+
+                client.readValues(0.0, TimestampsToReturn.Neither, Collections.singletonList(nodeId))
+                    .whenComplete((values, ex) -> read.complete(intended,
+                        ex != null ? null : values.get(0).getStatusCode()));
+            } else if (pick < profile.getReadWeight() + profile.getWriteWeight()) {
+                DataValue value = new DataValue(new Variant(ThreadLocalRandom.current().nextInt()), null, null);
+
+                client.writeValues(Collections.singletonList(writeNode), Collections.singletonList(value))
+                    .whenComplete((statusCodes, ex) -> write.complete(intended,
+                        ex != null ? null : statusCodes.get(0)));
+            } else {
+                CallMethodRequest request = new CallMethodRequest(
+                    objectId, methodId, new Variant[]{new Variant(ThreadLocalRandom.current().nextDouble(100))});
+
+                client.call(request)
+                    .whenComplete((result, ex) -> call.complete(intended,
+                        ex != null ? null : result.getStatusCode()));
+            }
+        }, 0, periodNanos, TimeUnit.NANOSECONDS);
+
+        future.whenComplete((c, ex) -> task.cancel(false));
+    }
+
+    public void run() throws Exception {
+        logger.info("starting load: {}", profile);
+
+        List<OpcUaClient> clients = new ArrayList<>();
+        List<CompletableFuture<OpcUaClient>> futures = new ArrayList<>();
+
+        for (int i = 0; i < profile.getSessions(); i++) {
+            OpcUaClient client = ClientExampleRunner.createClient(this);
+            CompletableFuture<OpcUaClient> future = new CompletableFuture<>();
+
+            run(client, future);
+
+            clients.add(client);
+            futures.add(future);
+        }
+
+        //会话全部建立后才开始计时
+        read.reset();
+        write.reset();
+        call.reset();
+        notifications.reset();
+
+        long start = System.nanoTime();
+
+        Thread.sleep(profile.getDurationSeconds() * 1000L);
+
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        for (int i = 0; i < clients.size(); i++) {
+            futures.get(i).complete(clients.get(i));
+        }
+
+        long notificationCount = notifications.sum();
+
+        writeReport(elapsed, notificationCount);
+
+        for (OpcUaClient client : clients) {
+            client.disconnect().get();
+        }
+
+        scheduler.shutdown();
+        Stack.releaseSharedResources();
+    }
+
+    private void subscribe(OpcUaClient client, List<NodeId> nodes) throws Exception {
+        if (profile.getItemsPerSession() <= 0) return;
+
+        UaSubscription subscription = client.getSubscriptionManager()
+            .createSubscription(profile.getPublishingInterval()).get();
+
+        List<MonitoredItemCreateRequest> requests = new ArrayList<>(profile.getItemsPerSession());
+
+        for (int i = 0; i < profile.getItemsPerSession(); i++) {
+            ReadValueId readValueId = new ReadValueId(
+                nodes.get(i % nodes.size()),
+                AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE
+            );
+
+            MonitoringParameters parameters = new MonitoringParameters(
+                subscription.nextClientHandle(),
+                profile.getSamplingInterval(),
+                null,
+                uint(10),
+                true
+            );
+
+            requests.add(new MonitoredItemCreateRequest(readValueId, MonitoringMode.Reporting, parameters));
+        }
+
+        List<UaMonitoredItem> items = subscription.createMonitoredItems(
+            TimestampsToReturn.Both,
+            requests,
+            (item, id) -> item.setValueConsumer((i, value) -> notifications.increment())
+        ).get();
+
+        long failed = items.stream().filter(item -> !item.getStatusCode().isGood()).count();
+        if (failed > 0) {
+            logger.warn("{} of {} monitored items failed", failed, items.size());
+        }
+    }
+
+    /**
+     * 确认负载的目标结点存在，服务器未创建示例结点时尽早失败
+     */
+    private static void checkTargets(
+        OpcUaClient client,
+        List<NodeId> readNodes,
+        NodeId writeNode,
+        NodeId methodId) throws Exception {
+
+        List<ReadValueId> readValueIds = new ArrayList<>();
+        for (NodeId nodeId : readNodes) {
+            readValueIds.add(new ReadValueId(nodeId, AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE));
+        }
+        readValueIds.add(new ReadValueId(writeNode, AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE));
+        readValueIds.add(new ReadValueId(methodId, AttributeId.BrowseName.uid(), null, QualifiedName.NULL_VALUE));
+
+        DataValue[] results = client.read(0.0, TimestampsToReturn.Neither, readValueIds).get().getResults();
+
+        for (int i = 0; i < readValueIds.size(); i++) {
+            if (!results[i].getStatusCode().isGood()) {
+                throw new Exception(String.format(
+                    "%s reads %s; is the server running with -Dcnc.demoNodes=true?",
+                    readValueIds.get(i).getNodeId(), results[i].getStatusCode()));
+            }
+        }
+    }
+
+    private void writeReport(double elapsed, long notificationCount) throws Exception {
+        List<Operation> operations = Arrays.asList(read, write, call);
+        List<Histogram> histograms = new ArrayList<>();
+
+        for (Operation operation : operations) {
+            histograms.add(operation.latency.getIntervalHistogram());
+        }
+
+        try (PrintStream out = new PrintStream(new FileOutputStream(profile.getReportFile()), true, "UTF-8")) {
+            out.println("profile: " + profile);
+            out.printf("duration: %.1f s%n", elapsed);
+            out.printf("notifications: %d (%.0f/s)%n", notificationCount, notificationCount / elapsed);
+            out.println();
+
+            for (int i = 0; i < operations.size(); i++) {
+                summary(out, operations.get(i), histograms.get(i), elapsed);
+            }
+
+            for (int i = 0; i < operations.size(); i++) {
+                distribution(out, operations.get(i).name, histograms.get(i));
+            }
+        }
+
+        logger.info("notifications: {}/s", String.format("%.0f", notificationCount / elapsed));
+        logger.info("report written to {}", profile.getReportFile());
+    }
+
+    private void summary(PrintStream out, Operation operation, Histogram histogram, double elapsed) {
+        String line = String.format(
+            "%-5s good=%d bad=%d failed=%d rate=%.0f/s p50=%.2fms p90=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms",
+            operation.name,
+            histogram.getTotalCount(),
+            operation.bad.sum(),
+            operation.failed.sum(),
+            histogram.getTotalCount() / elapsed,
+            histogram.getValueAtPercentile(50) / 1000.0,
+            histogram.getValueAtPercentile(90) / 1000.0,
+            histogram.getValueAtPercentile(99) / 1000.0,
+            histogram.getValueAtPercentile(99.9) / 1000.0,
+            histogram.getMaxValue() / 1000.0
+        );
+
+        out.println(line);
+        logger.info(line);
+    }
+
+    private static void distribution(PrintStream out, String name, Histogram histogram) {
+        out.println();
+        out.println(name + " latency distribution (ms):");
+
+        histogram.outputPercentileDistribution(out, 1000.0);
+    }
+
+    private static int namespaceIndex(OpcUaClient client) throws Exception {
+        DataValue value = client.readValue(0.0, TimestampsToReturn.Neither, Identifiers.Server_NamespaceArray).get();
+
+        String[] uris = (String[]) value.getValue().getValue();
+
+        for (int i = 0; i < uris.length; i++) {
+            if (NAMESPACE_URI.equals(uris[i])) return i;
+        }
+
+        throw new Exception("namespace not found on server: " + NAMESPACE_URI);
+    }
+
+    /**
+     * 一种请求的延迟和失败计数
+     */
+    private static class Operation {
+
+        final String name;
+
+        //只记录Good结果的延迟
+        final Recorder latency = new Recorder(3);
+
+        //服务器返回了非Good状态
+        final LongAdder bad = new LongAdder();
+
+        //请求本身失败，如超时或连接断开
+        final LongAdder failed = new LongAdder();
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @param statusCode the operation's result, or {@code null} if the request failed.
+         */
+        void complete(long intendedNanos, StatusCode statusCode) {
+            if (statusCode == null) {
+                failed.increment();
+            } else if (!statusCode.isGood()) {
+                bad.increment();
+            } else {
+                latency.recordValue(Math.max(0, (System.nanoTime() - intendedNanos) / 1000));
+            }
+        }
+
+        void reset() {
+            latency.reset();
+            bad.reset();
+            failed.reset();
+        }
+
+    }
+
+}
@@ -0,0 +1,119 @@
+package client;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * 负载生成器的参数。
+ * <p>
+ * Parsed from {@code key=value} arguments, e.g.
+ * {@code sessions=50 items=200 rate=100 read=8 write=1 call=1 duration=60}. The operation mix is given as relative
+ * weights; {@code rate} is the target number of operations per second for each session.
+ */
+public class LoadProfile {
+
+    private String endpointUrl = "opc.tcp://localhost:12686/milo";
+    private int sessions = 10;
+    private int itemsPerSession = 100;
+    private double samplingInterval = 100.0;
+    private double publishingInterval = 500.0;
+    private double operationsPerSecond = 50.0;
+    private int readWeight = 8;
+    private int writeWeight = 1;
+    private int callWeight = 1;
+    private int durationSeconds = 60;
+    private String reportFile = "load-report.txt";
+
+    public static LoadProfile parse(String[] args) {
+        LoadProfile profile = new LoadProfile();
+
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("expected key=value: " + arg);
+            }
+
+            String key = arg.substring(0, eq);
+            String value = arg.substring(eq + 1);
+
+            switch (key) {
+                case "endpoint": profile.endpointUrl = value; break;
+                case "sessions": profile.sessions = Integer.parseInt(value); break;
+                case "items": profile.itemsPerSession = Integer.parseInt(value); break;
+                case "sampling": profile.samplingInterval = Double.parseDouble(value); break;
+                case "publishing": profile.publishingInterval = Double.parseDouble(value); break;
+                case "rate": profile.operationsPerSecond = Double.parseDouble(value); break;
+                case "read": profile.readWeight = Integer.parseInt(value); break;
+                case "write": profile.writeWeight = Integer.parseInt(value); break;
+                case "call": profile.callWeight = Integer.parseInt(value); break;
+                case "duration": profile.durationSeconds = Integer.parseInt(value); break;
+                case "report": profile.reportFile = value; break;
+                default: throw new IllegalArgumentException("unknown parameter: " + key);
+            }
+        }
+
+        if (profile.readWeight + profile.writeWeight + profile.callWeight <= 0 && profile.operationsPerSecond > 0) {
+            throw new IllegalArgumentException("operation mix is empty");
+        }
+
+        return profile;
+    }
+
+    public String getEndpointUrl() {
+        return endpointUrl;
+    }
+
+    public int getSessions() {
+        return sessions;
+    }
+
+    public int getItemsPerSession() {
+        return itemsPerSession;
+    }
+
+    public double getSamplingInterval() {
+        return samplingInterval;
+    }
+
+    public double getPublishingInterval() {
+        return publishingInterval;
+    }
+
+    public double getOperationsPerSecond() {
+        return operationsPerSecond;
+    }
+
+    public int getReadWeight() {
+        return readWeight;
+    }
+
+    public int getWriteWeight() {
+        return writeWeight;
+    }
+
+    public int getCallWeight() {
+        return callWeight;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public String getReportFile() {
+        return reportFile;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+            .add("endpointUrl", endpointUrl)
+            .add("sessions", sessions)
+            .add("itemsPerSession", itemsPerSession)
+            .add("samplingInterval", samplingInterval)
+            .add("publishingInterval", publishingInterval)
+            .add("operationsPerSecond", operationsPerSecond)
+            .add("mix", readWeight + "/" + writeWeight + "/" + callWeight)
+            .add("durationSeconds", durationSeconds)
+            .toString();
+    }
+
+}
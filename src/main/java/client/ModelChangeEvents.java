@@ -0,0 +1,87 @@
+package client;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ExtensionObject;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.FilterOperator;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.MonitoringMode;
+import org.eclipse.milo.opcua.stack.core.types.structured.ContentFilter;
+import org.eclipse.milo.opcua.stack.core.types.structured.ContentFilterElement;
+import org.eclipse.milo.opcua.stack.core.types.structured.EventFilter;
+import org.eclipse.milo.opcua.stack.core.types.structured.LiteralOperand;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoredItemCreateRequest;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoringParameters;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.eclipse.milo.opcua.stack.core.types.structured.SimpleAttributeOperand;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+/**
+ * 模型变更事件的监视项。
+ * <p>
+ * Builds the request for an event item on the Server object that only reports BaseModelChangeEventType and its
+ * subtypes. The fields of each event are {@link #EVENT_TYPE}, {@link #TIME} and {@link #CHANGES}; the changes are
+ * only present for GeneralModelChangeEvents.
+ */
+final class ModelChangeEvents {
+
+    static final int EVENT_TYPE = 0;
+    static final int TIME = 1;
+    static final int CHANGES = 2;
+
+    private ModelChangeEvents() {}
+
+    static MonitoredItemCreateRequest request(OpcUaClient client, UInteger clientHandle) {
+        ReadValueId readValueId = new ReadValueId(
+            Identifiers.Server,
+            AttributeId.EventNotifier.uid(),
+            null,
+            QualifiedName.NULL_VALUE
+        );
+
+        EventFilter eventFilter = new EventFilter(
+            new SimpleAttributeOperand[]{
+                new SimpleAttributeOperand(
+                    Identifiers.BaseEventType,
+                    new QualifiedName[]{new QualifiedName(0, "EventType")},
+                    AttributeId.Value.uid(),
+                    null),
+                new SimpleAttributeOperand(
+                    Identifiers.BaseEventType,
+                    new QualifiedName[]{new QualifiedName(0, "Time")},
+                    AttributeId.Value.uid(),
+                    null),
+                new SimpleAttributeOperand(
+                    Identifiers.GeneralModelChangeEventType,
+                    new QualifiedName[]{new QualifiedName(0, "Changes")},
+                    AttributeId.Value.uid(),
+                    null)
+            },
+            new ContentFilter(new ContentFilterElement[]{
+                new ContentFilterElement(
+                    FilterOperator.OfType,
+                    new ExtensionObject[]{
+                        ExtensionObject.encode(
+                            client.getSerializationContext(),
+                            new LiteralOperand(new Variant(Identifiers.BaseModelChangeEventType)))
+                    }
+                )
+            })
+        );
+
+        MonitoringParameters parameters = new MonitoringParameters(
+            clientHandle,
+            0.0,
+            ExtensionObject.encode(client.getSerializationContext(), eventFilter),
+            uint(100),
+            true
+        );
+
+        return new MonitoredItemCreateRequest(readValueId, MonitoringMode.Reporting, parameters);
+    }
+
+}
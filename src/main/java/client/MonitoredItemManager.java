@@ -0,0 +1,474 @@
+package client;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaMonitoredItem;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaSubscription;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.UaException;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.MonitoringMode;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoredItemCreateRequest;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoringParameters;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+/**
+ * 大批量监视项的分片管理。
+ * <p>
+ * Items are grouped by publishing interval, and each group is spread over as many subscriptions as needed so that
+ * none holds more than {@code maxItemsPerSubscription} items; new items go to the least loaded subscription of their
+ * group. CreateMonitoredItems and DeleteMonitoredItems are sent in chunks of at most the server's
+ * MaxMonitoredItemsPerCall. Requests for one subscription are sent one after another, different subscriptions are
+ * served in parallel.
+ * <p>
+ * Every item is reported individually through its {@link ManagedItem}: a chunk that fails as a whole marks each of its
+ * items with the failure. When items are removed, subscriptions left empty are deleted, and when a group would fit in
+ * fewer subscriptions the items of its least loaded subscription are re-created on the others and the subscription
+ * is deleted. Moved items are created on their new subscription before being deleted from the old one, so they keep
+ * reporting throughout, and their {@link ManagedItem} stays valid.
+ * <p>
+ * An item can be removed while its create request is still in flight, either because it was just added or because
+ * it is being moved. It is marked as removed straight away, and once the request completes the server-side item it
+ * produced is deleted instead of being adopted.
+ */
+public class MonitoredItemManager {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final OpcUaClient client;
+    private final int maxItemsPerSubscription;
+    private final int maxItemsPerCall;
+
+    //以下状态由this保护
+    private final Map<Double, List<Shard>> groups = new HashMap<>();
+
+    /**
+     * @param maxItemsPerCall the most items in one Create/DeleteMonitoredItems request; {@code 0} means no limit.
+     */
+    public MonitoredItemManager(OpcUaClient client, int maxItemsPerSubscription, int maxItemsPerCall) {
+        this.client = client;
+        this.maxItemsPerSubscription = Math.max(1, maxItemsPerSubscription);
+        this.maxItemsPerCall = maxItemsPerCall > 0 ? maxItemsPerCall : Integer.MAX_VALUE;
+    }
+
+    /**
+     * 读取服务器的MaxMonitoredItemsPerCall后创建管理器，客户端必须已连接
+     */
+    public static CompletableFuture<MonitoredItemManager> create(OpcUaClient client, int maxItemsPerSubscription) {
+        return client.readValue(
+            0.0,
+            TimestampsToReturn.Neither,
+            Identifiers.Server_ServerCapabilities_OperationLimits_MaxMonitoredItemsPerCall
+        ).thenApply(value -> {
+            Object limit = value.getValue().getValue();
+
+            int maxItemsPerCall = limit instanceof UInteger
+                ? (int) Math.min(((UInteger) limit).longValue(), Integer.MAX_VALUE)
+                : 0;
+
+            return new MonitoredItemManager(client, maxItemsPerSubscription, maxItemsPerCall);
+        });
+    }
+
+    /**
+     * 创建监视项
+     *
+     * @param consumer receives the value changes of every item.
+     * @return a future completed once every item has been created or has failed; check
+     * {@link ManagedItem#getStatusCode()} for each.
+     */
+    public CompletableFuture<List<ManagedItem>> add(
+        double publishingInterval,
+        double samplingInterval,
+        List<ReadValueId> readValueIds,
+        BiConsumer<ManagedItem, DataValue> consumer) {
+
+        List<ManagedItem> items = new ArrayList<>(readValueIds.size());
+
+        for (ReadValueId readValueId : readValueIds) {
+            items.add(new ManagedItem(readValueId, samplingInterval, consumer));
+        }
+
+        Map<Shard, List<ManagedItem>> placement;
+
+        synchronized (this) {
+            placement = place(publishingInterval, items, null);
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        placement.forEach((shard, shardItems) -> futures.add(shard.create(shardItems)));
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(v -> items);
+    }
+
+    /**
+     * 删除监视项，然后回收空闲的订阅
+     */
+    public CompletableFuture<Void> remove(List<ManagedItem> items) {
+        Map<Shard, List<ManagedItem>> byShard = new LinkedHashMap<>();
+
+        synchronized (this) {
+            for (ManagedItem item : items) {
+                //仍在创建中的监视项在created()中删除
+                item.removed = true;
+
+                if (item.shard != null) {
+                    byShard.computeIfAbsent(item.shard, s -> new ArrayList<>()).add(item);
+                }
+            }
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        Set<Double> intervals = new LinkedHashSet<>();
+
+        byShard.forEach((shard, shardItems) -> {
+            futures.add(shard.delete(shardItems));
+            intervals.add(shard.publishingInterval);
+        });
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+            .thenCompose(v -> {
+                List<CompletableFuture<Void>> rebalanced = new ArrayList<>();
+                intervals.forEach(interval -> rebalanced.add(rebalance(interval)));
+                return CompletableFuture.allOf(rebalanced.toArray(new CompletableFuture[0]));
+            });
+    }
+
+    public synchronized int getSubscriptionCount() {
+        return groups.values().stream().mapToInt(List::size).sum();
+    }
+
+    public synchronized int getItemCount() {
+        return groups.values().stream().flatMap(List::stream).mapToInt(s -> s.items.size()).sum();
+    }
+
+    //把监视项分配到负载最低且未满的订阅，必要时新建订阅
+    private Map<Shard, List<ManagedItem>> place(double publishingInterval, List<ManagedItem> items, Shard exclude) {
+        List<Shard> shards = groups.computeIfAbsent(publishingInterval, i -> new ArrayList<>());
+        Map<Shard, List<ManagedItem>> placement = new LinkedHashMap<>();
+
+        //创建失败的订阅不再使用
+        shards.removeIf(s -> s.subscription.isCompletedExceptionally());
+
+        for (ManagedItem item : items) {
+            Shard target = shards.stream()
+                .filter(s -> s != exclude && s.items.size() < maxItemsPerSubscription)
+                .min(Comparator.comparingInt(s -> s.items.size()))
+                .orElse(null);
+
+            if (target == null) {
+                target = new Shard(publishingInterval);
+                shards.add(target);
+            }
+
+            target.items.add(item);
+            placement.computeIfAbsent(target, s -> new ArrayList<>()).add(item);
+        }
+
+        return placement;
+    }
+
+    private CompletableFuture<Void> rebalance(double publishingInterval) {
+        Shard source;
+        List<ManagedItem> moving;
+        Map<Shard, List<ManagedItem>> placement;
+
+        synchronized (this) {
+            List<Shard> shards = groups.get(publishingInterval);
+            if (shards == null || shards.size() < 2) return CompletableFuture.completedFuture(null);
+
+            int total = shards.stream().mapToInt(s -> s.items.size()).sum();
+            int needed = (total + maxItemsPerSubscription - 1) / maxItemsPerSubscription;
+
+            if (shards.size() <= needed) return CompletableFuture.completedFuture(null);
+
+            source = shards.stream().min(Comparator.comparingInt(s -> s.items.size())).get();
+            moving = new ArrayList<>(source.items);
+
+            placement = place(publishingInterval, moving, source);
+        }
+
+        logger.debug("Moving {} items off a subscription @ {}ms", moving.size(), publishingInterval);
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        Map<ManagedItem, UaMonitoredItem> previous = new HashMap<>();
+
+        moving.forEach(item -> previous.put(item, item.item));
+        placement.forEach((shard, shardItems) -> futures.add(shard.create(shardItems)));
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenCompose(v -> {
+            List<ManagedItem> moved = new ArrayList<>();
+
+            synchronized (this) {
+                for (ManagedItem item : moving) {
+                    //迁移期间被删除的监视项，旧的已由remove()删除
+                    if (item.shard != source && !item.removed) {
+                        moved.add(item);
+                    }
+                }
+            }
+
+            //新监视项建好后再删除旧的
+            return source.deleteOld(moved, previous);
+        });
+    }
+
+    private static StatusCode statusOf(Throwable ex) {
+        return UaException.extract(ex)
+            .map(UaException::getStatusCode)
+            .orElse(new StatusCode(StatusCodes.Bad_UnexpectedError));
+    }
+
+    /**
+     * 由管理器维护的监视项，在订阅之间迁移后仍然有效
+     */
+    public static class ManagedItem {
+
+        private final ReadValueId readValueId;
+        private final double samplingInterval;
+        private final BiConsumer<ManagedItem, DataValue> consumer;
+
+        private volatile UaMonitoredItem item;
+        private volatile StatusCode statusCode = new StatusCode(StatusCodes.Bad_WaitingForResponse);
+
+        //由MonitoredItemManager.this保护
+        private Shard shard;
+        private boolean removed;
+
+        ManagedItem(ReadValueId readValueId, double samplingInterval, BiConsumer<ManagedItem, DataValue> consumer) {
+            this.readValueId = readValueId;
+            this.samplingInterval = samplingInterval;
+            this.consumer = consumer;
+        }
+
+        public ReadValueId getReadValueId() {
+            return readValueId;
+        }
+
+        /**
+         * @return the status of the create request, or of the request that failed for the whole chunk.
+         */
+        public StatusCode getStatusCode() {
+            return statusCode;
+        }
+
+        /**
+         * @return the current server-side item, or {@code null} if it could not be created.
+         */
+        public UaMonitoredItem getMonitoredItem() {
+            return item;
+        }
+
+    }
+
+    private class Shard {
+
+        final double publishingInterval;
+        final CompletableFuture<UaSubscription> subscription;
+
+        //由MonitoredItemManager.this保护，包括正在创建的监视项
+        final Set<ManagedItem> items = new LinkedHashSet<>();
+
+        //同一订阅上的请求依次发送
+        private CompletableFuture<?> tail;
+
+        Shard(double publishingInterval) {
+            this.publishingInterval = publishingInterval;
+            this.subscription = client.getSubscriptionManager().createSubscription(publishingInterval);
+            this.tail = subscription;
+        }
+
+        CompletableFuture<Void> create(List<ManagedItem> shardItems) {
+            return enqueue(sub -> {
+                List<CompletableFuture<Void>> chunks = new ArrayList<>();
+
+                for (int from = 0; from < shardItems.size(); from += maxItemsPerCall) {
+                    int to = Math.min(shardItems.size(), from + maxItemsPerCall);
+
+                    chunks.add(createChunk(sub, shardItems.subList(from, to)));
+                }
+
+                return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0]));
+            }, ex -> created(shardItems, null, ex));
+        }
+
+        private CompletableFuture<Void> createChunk(UaSubscription sub, List<ManagedItem> chunk) {
+            List<MonitoredItemCreateRequest> requests = new ArrayList<>(chunk.size());
+
+            for (ManagedItem item : chunk) {
+                MonitoringParameters parameters = new MonitoringParameters(
+                    sub.nextClientHandle(),
+                    item.samplingInterval,
+                    null,
+                    uint(1),
+                    true
+                );
+
+                requests.add(new MonitoredItemCreateRequest(item.readValueId, MonitoringMode.Reporting, parameters));
+            }
+
+            return sub.createMonitoredItems(
+                TimestampsToReturn.Both,
+                requests,
+                (uaItem, i) -> {
+                    ManagedItem item = chunk.get(i);
+                    uaItem.setValueConsumer((it, value) -> item.consumer.accept(item, value));
+                }
+            ).handle((uaItems, ex) -> {
+                created(chunk, uaItems, ex);
+                return null;
+            });
+        }
+
+        private void created(List<ManagedItem> chunk, List<UaMonitoredItem> uaItems, Throwable ex) {
+            List<UaMonitoredItem> orphans = new ArrayList<>();
+
+            synchronized (MonitoredItemManager.this) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    ManagedItem item = chunk.get(i);
+
+                    UaMonitoredItem uaItem = ex == null && uaItems != null && i < uaItems.size()
+                        ? uaItems.get(i)
+                        : null;
+                    StatusCode statusCode = uaItem != null ? uaItem.getStatusCode() : statusOf(ex);
+
+                    if (item.removed) {
+                        //创建期间已被删除，不再接管新建的监视项
+                        items.remove(item);
+                        item.statusCode = new StatusCode(StatusCodes.Bad_MonitoredItemIdInvalid);
+
+                        if (statusCode.isGood()) {
+                            orphans.add(uaItem);
+                        }
+                    } else if (statusCode.isGood()) {
+                        item.item = uaItem;
+                        item.statusCode = statusCode;
+
+                        if (item.shard != null && item.shard != this) {
+                            item.shard.items.remove(item);
+                        }
+                        item.shard = this;
+                    } else {
+                        // a failed move keeps the item where it was
+                        items.remove(item);
+
+                        if (item.shard == null) {
+                            item.statusCode = statusCode;
+                        }
+                    }
+                }
+            }
+
+            if (!orphans.isEmpty()) {
+                deleteItems(orphans);
+            }
+        }
+
+        CompletableFuture<Void> delete(List<ManagedItem> shardItems) {
+            List<UaMonitoredItem> uaItems = new ArrayList<>(shardItems.size());
+
+            synchronized (MonitoredItemManager.this) {
+                for (ManagedItem item : shardItems) {
+                    if (item.shard == this && item.item != null) {
+                        uaItems.add(item.item);
+                    }
+                    items.remove(item);
+                    item.shard = null;
+                    item.item = null;
+                    item.statusCode = new StatusCode(StatusCodes.Bad_MonitoredItemIdInvalid);
+                }
+            }
+
+            return deleteItems(uaItems);
+        }
+
+        CompletableFuture<Void> deleteOld(List<ManagedItem> moved, Map<ManagedItem, UaMonitoredItem> previous) {
+            List<UaMonitoredItem> uaItems = new ArrayList<>(moved.size());
+
+            for (ManagedItem item : moved) {
+                UaMonitoredItem old = previous.get(item);
+                if (old != null) {
+                    uaItems.add(old);
+                }
+            }
+
+            return deleteItems(uaItems);
+        }
+
+        private CompletableFuture<Void> deleteItems(List<UaMonitoredItem> uaItems) {
+            return enqueue(sub -> {
+                List<CompletableFuture<?>> chunks = new ArrayList<>();
+
+                for (int from = 0; from < uaItems.size(); from += maxItemsPerCall) {
+                    chunks.add(sub.deleteMonitoredItems(
+                        uaItems.subList(from, Math.min(uaItems.size(), from + maxItemsPerCall))));
+                }
+
+                return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0]))
+                    .thenCompose(v -> deleteIfEmpty(sub));
+            }, ex -> logger.warn("Failed to delete monitored items", ex));
+        }
+
+        private CompletableFuture<Void> deleteIfEmpty(UaSubscription sub) {
+            synchronized (MonitoredItemManager.this) {
+                if (!items.isEmpty()) return CompletableFuture.completedFuture(null);
+
+                List<Shard> shards = groups.get(publishingInterval);
+                if (shards != null) {
+                    shards.remove(this);
+                    if (shards.isEmpty()) {
+                        groups.remove(publishingInterval);
+                    }
+                }
+            }
+
+            return client.getSubscriptionManager()
+                .deleteSubscription(sub.getSubscriptionId())
+                .thenApply(s -> null);
+        }
+
+        private CompletableFuture<Void> enqueue(
+            Function<UaSubscription, CompletableFuture<Void>> operation,
+            Consumer<Throwable> onFailure) {
+
+            CompletableFuture<Void> done = new CompletableFuture<>();
+
+            synchronized (this) {
+                tail = tail
+                    .handle((r, ex) -> null)
+                    .thenCompose(v -> subscription)
+                    .thenCompose(operation)
+                    .whenComplete((r, ex) -> {
+                        if (ex != null) {
+                            onFailure.accept(ex);
+                        }
+                        done.complete(null);
+                    });
+            }
+
+            return done;
+        }
+
+    }
+
+}
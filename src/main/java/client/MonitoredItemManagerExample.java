@@ -0,0 +1,72 @@
+package client;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MonitoredItemManagerExample implements ClientExample {
+
+    public static void main(String[] args) throws Exception {
+        MonitoredItemManagerExample example = new MonitoredItemManagerExample();
+
+        new ClientExampleRunner(example).run();
+    }
+
+    private static final String[] NODES = {
+        "HelloWorld/Dynamic/Boolean",
+        "HelloWorld/Dynamic/Int32",
+        "HelloWorld/Dynamic/Double",
+        "HelloWorld/ScalarTypes/Int32",
+        "HelloWorld/NoSuchNode"
+    };
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Override
+    public void run(OpcUaClient client, CompletableFuture<OpcUaClient> future) throws Exception {
+        // synchronous connect
+        client.connect().get();
+
+        // small shards so the example spreads over several subscriptions
+        MonitoredItemManager manager = MonitoredItemManager.create(client, 1000).get();
+
+        List<ReadValueId> readValueIds = new ArrayList<>();
+
+        for (int i = 0; i < 5000; i++) {
+            readValueIds.add(new ReadValueId(
+                new NodeId(2, NODES[i % NODES.length]),
+                AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE
+            ));
+        }
+
+        AtomicLong notifications = new AtomicLong();
+
+        List<MonitoredItemManager.ManagedItem> items = manager.add(
+            1000.0, 500.0, readValueIds, (item, value) -> notifications.incrementAndGet()).get();
+
+        long failed = items.stream().filter(item -> !item.getStatusCode().isGood()).count();
+
+        logger.info("{} items on {} subscriptions, {} failed",
+            manager.getItemCount(), manager.getSubscriptionCount(), failed);
+
+        Thread.sleep(5000);
+
+        // removing half of them lets the manager fold the remainder into fewer subscriptions
+        manager.remove(items.subList(0, items.size() / 2)).get();
+
+        logger.info("{} items on {} subscriptions, {} notifications",
+            manager.getItemCount(), manager.getSubscriptionCount(), notifications.get());
+
+        future.complete(client);
+    }
+
+}
@@ -0,0 +1,278 @@
+package client;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.sdk.client.api.nodes.Node;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ExtensionObject;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.BrowsePath;
+import org.eclipse.milo.opcua.stack.core.types.structured.BrowsePathResult;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.eclipse.milo.opcua.stack.core.types.structured.RelativePath;
+import org.eclipse.milo.opcua.stack.core.types.structured.RelativePathElement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 一次Read预取多个结点的属性和组件值。
+ * <p>
+ * Collects attributes of nodes, given as NodeIds or typed client nodes, and values of their components, given as
+ * browse paths relative to a node, and reads all of them in a single Read request. The values are kept in this object
+ * and the getters are answered locally until {@link #refresh()} reads them again, again in one request.
+ * <p>
+ * Component paths are translated once, in a single TranslateBrowsePaths request, when the prefetch is built.
+ */
+public class NodePrefetch {
+
+    private final OpcUaClient client;
+    private final List<ReadValueId> readValueIds;
+    private final Map<ComponentPath, NodeId> components;
+
+    private volatile Map<NodeId, DataValue[]> values = Collections.emptyMap();
+
+    private NodePrefetch(OpcUaClient client, List<ReadValueId> readValueIds, Map<ComponentPath, NodeId> components) {
+        this.client = client;
+        this.readValueIds = readValueIds;
+        this.components = components;
+    }
+
+    public static Builder builder(OpcUaClient client) {
+        return new Builder(client);
+    }
+
+    /**
+     * 重新读取所有预取的值
+     */
+    public CompletableFuture<NodePrefetch> refresh() {
+        if (readValueIds.isEmpty()) {
+            return CompletableFuture.completedFuture(this);
+        }
+
+        return client.read(0.0, TimestampsToReturn.Both, readValueIds).thenApply(response -> {
+            DataValue[] results = response.getResults();
+
+            Map<NodeId, DataValue[]> refreshed = new HashMap<>();
+
+            for (int i = 0; i < readValueIds.size() && results != null && i < results.length; i++) {
+                ReadValueId readValueId = readValueIds.get(i);
+
+                DataValue[] attributes = refreshed.computeIfAbsent(
+                    readValueId.getNodeId(), id -> new DataValue[AttributeId.values().length + 1]);
+
+                attributes[readValueId.getAttributeId().intValue()] = results[i];
+            }
+
+            values = refreshed;
+
+            return this;
+        });
+    }
+
+    /**
+     * @return the prefetched attribute, or {@code null} if it was not prefetched.
+     */
+    public DataValue get(NodeId nodeId, AttributeId attributeId) {
+        DataValue[] attributes = values.get(nodeId);
+
+        return attributes != null ? attributes[attributeId.id()] : null;
+    }
+
+    /**
+     * 返回预取的Value属性，结构体已解码
+     *
+     * @return the value, or {@code null} if it was not prefetched or is empty.
+     */
+    public <T> T getValue(NodeId nodeId, Class<T> type) {
+        DataValue value = get(nodeId, AttributeId.Value);
+
+        if (value == null) return null;
+
+        Object o = value.getValue().getValue();
+
+        if (o instanceof ExtensionObject) {
+            o = ((ExtensionObject) o).decode(client.getSerializationContext());
+        }
+
+        return type.cast(o);
+    }
+
+    /**
+     * 返回组件的Value属性
+     *
+     * @param path browse names from {@code parent} down to the component.
+     */
+    public <T> T getComponentValue(NodeId parent, Class<T> type, QualifiedName... path) {
+        NodeId nodeId = getComponentNodeId(parent, path);
+
+        return nodeId != null ? getValue(nodeId, type) : null;
+    }
+
+    /**
+     * @return the component's NodeId, or {@code null} if the path was not prefetched or could not be resolved.
+     */
+    public NodeId getComponentNodeId(NodeId parent, QualifiedName... path) {
+        return components.get(new ComponentPath(parent, path));
+    }
+
+    public static class Builder {
+
+        private final OpcUaClient client;
+
+        private final List<CompletableFuture<NodeId>> nodeIds = new ArrayList<>();
+        private final List<AttributeId[]> attributes = new ArrayList<>();
+
+        private final List<CompletableFuture<NodeId>> parents = new ArrayList<>();
+        private final List<QualifiedName[]> paths = new ArrayList<>();
+
+        private Builder(OpcUaClient client) {
+            this.client = client;
+        }
+
+        public Builder attributes(NodeId nodeId, AttributeId... attributeIds) {
+            return attributes(CompletableFuture.completedFuture(nodeId), attributeIds);
+        }
+
+        public Builder attributes(Node node, AttributeId... attributeIds) {
+            return attributes(node.getNodeId(), attributeIds);
+        }
+
+        private Builder attributes(CompletableFuture<NodeId> nodeId, AttributeId... attributeIds) {
+            nodeIds.add(nodeId);
+            attributes.add(attributeIds);
+            return this;
+        }
+
+        /**
+         * 预取组件的Value属性
+         *
+         * @param path browse names from {@code parent} down to the component.
+         */
+        public Builder component(NodeId parent, QualifiedName... path) {
+            parents.add(CompletableFuture.completedFuture(parent));
+            paths.add(path);
+            return this;
+        }
+
+        public Builder component(Node parent, QualifiedName... path) {
+            parents.add(parent.getNodeId());
+            paths.add(path);
+            return this;
+        }
+
+        /**
+         * 解析组件路径并完成第一次读取
+         */
+        public CompletableFuture<NodePrefetch> build() {
+            List<CompletableFuture<NodeId>> all = new ArrayList<>(nodeIds);
+            all.addAll(parents);
+
+            return CompletableFuture.allOf(all.toArray(new CompletableFuture[0]))
+                .thenCompose(v -> resolveComponents())
+                .thenCompose(components -> {
+                    //去重，相同的结点属性只读一次
+                    LinkedHashMap<String, ReadValueId> readValueIds = new LinkedHashMap<>();
+
+                    for (int i = 0; i < nodeIds.size(); i++) {
+                        NodeId nodeId = nodeIds.get(i).join();
+
+                        for (AttributeId attributeId : attributes.get(i)) {
+                            readValueIds.putIfAbsent(nodeId + "#" + attributeId, readValueId(nodeId, attributeId));
+                        }
+                    }
+
+                    for (NodeId nodeId : components.values()) {
+                        readValueIds.putIfAbsent(nodeId + "#" + AttributeId.Value,
+                            readValueId(nodeId, AttributeId.Value));
+                    }
+
+                    return new NodePrefetch(client, new ArrayList<>(readValueIds.values()), components).refresh();
+                });
+        }
+
+        private CompletableFuture<Map<ComponentPath, NodeId>> resolveComponents() {
+            if (paths.isEmpty()) {
+                return CompletableFuture.completedFuture(Collections.emptyMap());
+            }
+
+            List<BrowsePath> browsePaths = new ArrayList<>(paths.size());
+
+            for (int i = 0; i < paths.size(); i++) {
+                QualifiedName[] path = paths.get(i);
+                RelativePathElement[] elements = new RelativePathElement[path.length];
+
+                for (int j = 0; j < path.length; j++) {
+                    elements[j] = new RelativePathElement(
+                        Identifiers.HierarchicalReferences,
+                        false,
+                        true,
+                        path[j]
+                    );
+                }
+
+                browsePaths.add(new BrowsePath(parents.get(i).join(), new RelativePath(elements)));
+            }
+
+            return client.translateBrowsePaths(browsePaths).thenApply(response -> {
+                Map<ComponentPath, NodeId> components = new HashMap<>();
+                BrowsePathResult[] results = response.getResults();
+
+                for (int i = 0; i < browsePaths.size() && results != null && i < results.length; i++) {
+                    BrowsePathResult result = results[i];
+
+                    if (result.getStatusCode().isGood() && result.getTargets() != null
+                        && result.getTargets().length > 0) {
+
+                        ComponentPath path = new ComponentPath(browsePaths.get(i).getStartingNode(), paths.get(i));
+
+                        result.getTargets()[0].getTargetId().local().ifPresent(nodeId -> components.put(path, nodeId));
+                    }
+                }
+
+                return components;
+            });
+        }
+
+        private static ReadValueId readValueId(NodeId nodeId, AttributeId attributeId) {
+            return new ReadValueId(nodeId, attributeId.uid(), null, QualifiedName.NULL_VALUE);
+        }
+
+    }
+
+    private static class ComponentPath {
+
+        final NodeId parent;
+        final List<QualifiedName> path;
+
+        ComponentPath(NodeId parent, QualifiedName[] path) {
+            this.parent = parent;
+            this.path = Arrays.asList(path);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ComponentPath that = (ComponentPath) o;
+            return parent.equals(that.parent) && path.equals(that.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(parent, path);
+        }
+
+    }
+
+}
@@ -0,0 +1,262 @@
+package client;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaMonitoredItem;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * 多线程分发订阅通知。
+ * <p>
+ * Value consumers registered through {@link #register} no longer run on the client's notification thread. Each item
+ * is hashed to one of {@code partitions} worker threads, each with a bounded queue, so a slow consumer only holds back
+ * the items of its own partition while the notifications of each item are still delivered in order.
+ * <p>
+ * A conflating item keeps at most one entry in its partition's queue: values that arrive while it is waiting replace
+ * the pending one, and the consumer only sees the latest. When the queue of a partition is full the
+ * {@link OverflowPolicy} decides what happens to the new notification.
+ */
+public class NotificationDispatcher implements AutoCloseable {
+
+    public enum OverflowPolicy {
+
+        /** The new notification is dropped. */
+        DROP_NEWEST,
+
+        /** The oldest queued notification of the partition is dropped to make room. */
+        DROP_OLDEST,
+
+        /** The client's notification thread waits for room, slowing down every subscription. */
+        BLOCK
+
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Partition[] partitions;
+    private final OverflowPolicy overflowPolicy;
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder conflated = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile boolean closed = false;
+
+    /**
+     * @param queueCapacity the most notifications queued per partition.
+     */
+    public NotificationDispatcher(int partitions, int queueCapacity, OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+        this.partitions = new Partition[Math.max(1, partitions)];
+
+        ThreadFactory threadFactory = new ThreadFactoryBuilder()
+            .setNameFormat("notification-dispatch-%d")
+            .setDaemon(true)
+            .build();
+
+        for (int i = 0; i < this.partitions.length; i++) {
+            this.partitions[i] = new Partition(Math.max(1, queueCapacity));
+            threadFactory.newThread(this.partitions[i]::run).start();
+        }
+    }
+
+    /**
+     * 为监视项设置值回调，回调在分区线程上执行
+     *
+     * @param conflate deliver only the latest value when the consumer falls behind.
+     */
+    public void register(UaMonitoredItem item, BiConsumer<UaMonitoredItem, DataValue> consumer, boolean conflate) {
+        Partition partition = partitions[partitionOf(item)];
+
+        if (conflate) {
+            ConflatingSlot slot = new ConflatingSlot(item, consumer);
+
+            item.setValueConsumer((i, value) -> {
+                if (slot.latest.getAndSet(value) != null) {
+                    conflated.increment();
+                } else if (slot.queued.compareAndSet(false, true)) {
+                    partition.enqueue(slot);
+                }
+            });
+        } else {
+            item.setValueConsumer((i, value) -> partition.enqueue(() -> consumer.accept(i, value)));
+        }
+    }
+
+    /**
+     * @return notifications waiting in the queue of {@code partition}.
+     */
+    public int getQueueDepth(int partition) {
+        return partitions[partition].queue.size();
+    }
+
+    /**
+     * @return the deepest any partition queue has been.
+     */
+    public int getMaxQueueDepth() {
+        int max = 0;
+        for (Partition partition : partitions) {
+            max = Math.max(max, partition.maxDepth);
+        }
+        return max;
+    }
+
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    /**
+     * @return values replaced by a newer one before they were delivered.
+     */
+    public long getConflatedCount() {
+        return conflated.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * 停止分区线程，未分发的通知被丢弃
+     */
+    @Override
+    public void close() {
+        closed = true;
+
+        for (Partition partition : partitions) {
+            partition.queue.clear();
+            partition.queue.offer(() -> {});
+        }
+    }
+
+    private int partitionOf(UaMonitoredItem item) {
+        int hash = Objects.hash(item.getReadValueId().getNodeId(), item.getClientHandle());
+
+        // spread the bits so sequential handles don't pile into neighbouring partitions
+        hash ^= (hash >>> 16);
+
+        return Math.floorMod(hash, partitions.length);
+    }
+
+    private class Partition {
+
+        final BlockingQueue<Runnable> queue;
+        volatile int maxDepth = 0;
+
+        Partition(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        void enqueue(Runnable task) {
+            if (closed) return;
+
+            switch (overflowPolicy) {
+                case DROP_NEWEST:
+                    if (!queue.offer(task)) {
+                        dropped(task);
+                    }
+                    break;
+
+                case DROP_OLDEST:
+                    while (!queue.offer(task)) {
+                        Runnable oldest = queue.poll();
+                        if (oldest != null) {
+                            dropped(oldest);
+                        }
+                    }
+                    break;
+
+                case BLOCK:
+                    try {
+                        queue.put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        dropped(task);
+                    }
+                    break;
+            }
+
+            int depth = queue.size();
+            if (depth > maxDepth) {
+                maxDepth = depth;
+            }
+        }
+
+        private void dropped(Runnable task) {
+            dropped.increment();
+
+            //合并槽被丢弃后需要允许重新入队
+            if (task instanceof ConflatingSlot) {
+                ConflatingSlot slot = (ConflatingSlot) task;
+                slot.latest.set(null);
+                slot.queued.set(false);
+
+                //清除标记前到达的值既不会被分发也不会自行入队，在这里补上
+                if (slot.latest.get() != null && slot.queued.compareAndSet(false, true)) {
+                    enqueue(slot);
+                }
+            }
+        }
+
+        void run() {
+            while (!closed) {
+                try {
+                    Runnable task = queue.take();
+
+                    if (closed) break;
+
+                    task.run();
+                    delivered.increment();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (Throwable t) {
+                    logger.warn("Notification consumer failed", t);
+                }
+            }
+        }
+
+    }
+
+    private static class ConflatingSlot implements Runnable {
+
+        final UaMonitoredItem item;
+        final BiConsumer<UaMonitoredItem, DataValue> consumer;
+
+        final AtomicReference<DataValue> latest = new AtomicReference<>();
+        final AtomicBoolean queued = new AtomicBoolean();
+
+        ConflatingSlot(UaMonitoredItem item, BiConsumer<UaMonitoredItem, DataValue> consumer) {
+            this.item = item;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void run() {
+            //先清除入队标记，之后到达的值会重新入队
+            queued.set(false);
+
+            DataValue value = latest.getAndSet(null);
+
+            if (value != null) {
+                consumer.accept(item, value);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,103 @@
+package client;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaMonitoredItem;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaSubscription;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.MonitoringMode;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoredItemCreateRequest;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoringParameters;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+public class NotificationDispatcherExample implements ClientExample {
+
+    public static void main(String[] args) throws Exception {
+        NotificationDispatcherExample example = new NotificationDispatcherExample();
+
+        new ClientExampleRunner(example).run();
+    }
+
+    private static final String[] NODES = {
+        "HelloWorld/Dynamic/Boolean",
+        "HelloWorld/Dynamic/Int32",
+        "HelloWorld/Dynamic/Double"
+    };
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Override
+    public void run(OpcUaClient client, CompletableFuture<OpcUaClient> future) throws Exception {
+        // synchronous connect
+        client.connect().get();
+
+        NotificationDispatcher dispatcher = new NotificationDispatcher(
+            4, 1000, NotificationDispatcher.OverflowPolicy.DROP_OLDEST);
+
+        UaSubscription subscription = client.getSubscriptionManager().createSubscription(100.0).get();
+
+        List<MonitoredItemCreateRequest> requests = new ArrayList<>();
+
+        for (String node : NODES) {
+            ReadValueId readValueId = new ReadValueId(
+                new NodeId(2, node),
+                AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE
+            );
+
+            MonitoringParameters parameters = new MonitoringParameters(
+                subscription.nextClientHandle(), 50.0, null, uint(10), true);
+
+            requests.add(new MonitoredItemCreateRequest(readValueId, MonitoringMode.Reporting, parameters));
+        }
+
+        // the Double item has a slow consumer and only needs the latest value;
+        // the other items keep their pace because they sit on other partitions
+        subscription.createMonitoredItems(
+            TimestampsToReturn.Both,
+            requests,
+            (item, id) -> {
+                if (NODES[id].endsWith("Double")) {
+                    dispatcher.register(item, this::onSlowValue, true);
+                } else {
+                    dispatcher.register(item, this::onValue, false);
+                }
+            }
+        ).get();
+
+        Thread.sleep(5000);
+
+        logger.info("delivered={} conflated={} dropped={} maxQueueDepth={}",
+            dispatcher.getDeliveredCount(), dispatcher.getConflatedCount(),
+            dispatcher.getDroppedCount(), dispatcher.getMaxQueueDepth());
+
+        dispatcher.close();
+
+        future.complete(client);
+    }
+
+    private void onValue(UaMonitoredItem item, DataValue value) {
+        logger.info("value: item={}, value={}", item.getReadValueId().getNodeId(), value.getValue());
+    }
+
+    private void onSlowValue(UaMonitoredItem item, DataValue value) {
+        try {
+            Thread.sleep(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        logger.info("slow value: item={}, value={}", item.getReadValueId().getNodeId(), value.getValue());
+    }
+
+}
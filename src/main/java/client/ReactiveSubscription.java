@@ -0,0 +1,285 @@
+package client;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaMonitoredItem;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaSubscription;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.UaException;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ExtensionObject;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.MonitoringMode;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.EventFilter;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoredItemCreateRequest;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoringParameters;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+/**
+ * 基于Reactor的订阅接口。
+ * <p>
+ * Every {@link Flux} returned here owns one monitored item: it is created on the server when the Flux is subscribed
+ * to and deleted when the Flux is cancelled or completes. Subscribing twice creates two items.
+ * <p>
+ * A downstream consumer that is slower than the item never causes unbounded buffering on the client. With
+ * {@link Backpressure#LATEST} values are conflated and the consumer gets the newest one when it asks for more. With
+ * {@link Backpressure#SERVER_QUEUE} the item is switched to Sampling mode as soon as there is no outstanding demand,
+ * so the server keeps the next {@code queueSize} notifications in the item's own queue (dropping the oldest), and
+ * it is switched back to Reporting when demand returns. Event items always use the server queue, since events can't
+ * be conflated.
+ */
+public class ReactiveSubscription {
+
+    public enum Backpressure {
+
+        /** Keep only the newest undelivered value. */
+        LATEST,
+
+        /** Stop reporting while there is no demand and let the item's server-side queue hold the backlog. */
+        SERVER_QUEUE
+
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final OpcUaClient client;
+    private final UaSubscription subscription;
+
+    //尚未结束的Flux，删除订阅时全部完成
+    private final Set<FluxSink<?>> sinks = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean deleted = false;
+
+    public ReactiveSubscription(OpcUaClient client, UaSubscription subscription) {
+        this.client = client;
+        this.subscription = subscription;
+    }
+
+    /**
+     * 创建订阅，客户端必须已连接
+     */
+    public static Mono<ReactiveSubscription> create(OpcUaClient client, double publishingInterval) {
+        return Mono.fromFuture(client.getSubscriptionManager().createSubscription(publishingInterval))
+            .map(subscription -> new ReactiveSubscription(client, subscription));
+    }
+
+    public UaSubscription getSubscription() {
+        return subscription;
+    }
+
+    /**
+     * 订阅结点的Value属性，以发布间隔采样，值被合并
+     */
+    public Flux<DataValue> values(NodeId nodeId) {
+        return values(
+            new ReadValueId(nodeId, AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE),
+            subscription.getRevisedPublishingInterval(),
+            1,
+            Backpressure.LATEST
+        );
+    }
+
+    public Flux<DataValue> values(
+        ReadValueId readValueId,
+        double samplingInterval,
+        int queueSize,
+        Backpressure backpressure) {
+
+        return monitor(
+            readValueId,
+            samplingInterval,
+            null,
+            queueSize,
+            backpressure,
+            (item, emit) -> item.setValueConsumer((i, value) -> emit.accept(value))
+        );
+    }
+
+    /**
+     * 订阅结点的事件
+     *
+     * @param notifier an object whose EventNotifier attribute reports events, e.g. the Server object.
+     */
+    public Flux<Variant[]> events(NodeId notifier, EventFilter filter, int queueSize) {
+        ReadValueId readValueId = new ReadValueId(
+            notifier, AttributeId.EventNotifier.uid(), null, QualifiedName.NULL_VALUE);
+
+        return monitor(
+            readValueId,
+            0.0,
+            ExtensionObject.encode(client.getSerializationContext(), filter),
+            queueSize,
+            Backpressure.SERVER_QUEUE,
+            (item, emit) -> item.setEventConsumer((i, fields) -> emit.accept(fields))
+        );
+    }
+
+    /**
+     * 删除订阅，所有Flux随之结束
+     * <p>
+     * The monitored items go with the subscription, so the Fluxes complete without deleting their items one by one.
+     * A Flux subscribed to after this completes right away.
+     */
+    public Mono<Void> delete() {
+        deleted = true;
+
+        CompletableFuture<UaSubscription> future =
+            client.getSubscriptionManager().deleteSubscription(subscription.getSubscriptionId());
+
+        future.whenComplete((s, ex) -> sinks.forEach(FluxSink::complete));
+
+        return Mono.fromFuture(future).then();
+    }
+
+    private <T> Flux<T> monitor(
+        ReadValueId readValueId,
+        double samplingInterval,
+        ExtensionObject filter,
+        int queueSize,
+        Backpressure backpressure,
+        BiConsumer<UaMonitoredItem, Consumer<T>> hookup) {
+
+        FluxSink.OverflowStrategy overflow = backpressure == Backpressure.LATEST
+            ? FluxSink.OverflowStrategy.LATEST
+            : FluxSink.OverflowStrategy.BUFFER;
+
+        return Flux.create(sink -> {
+            sinks.add(sink);
+
+            if (deleted) {
+                sinks.remove(sink);
+                sink.complete();
+                return;
+            }
+
+            ItemState state = new ItemState();
+
+            MonitoringParameters parameters = new MonitoringParameters(
+                subscription.nextClientHandle(),
+                samplingInterval,
+                filter,
+                uint(Math.max(1, queueSize)),
+                true
+            );
+
+            MonitoredItemCreateRequest request =
+                new MonitoredItemCreateRequest(readValueId, MonitoringMode.Reporting, parameters);
+
+            Consumer<T> emit = value -> {
+                sink.next(value);
+
+                if (backpressure == Backpressure.SERVER_QUEUE && sink.requestedFromDownstream() == 0) {
+                    setReporting(state, false);
+                }
+            };
+
+            sink.onRequest(n -> setReporting(state, true));
+            sink.onDispose(() -> {
+                sinks.remove(sink);
+                dispose(state);
+            });
+
+            subscription.createMonitoredItems(
+                TimestampsToReturn.Both,
+                Collections.singletonList(request),
+                (item, id) -> hookup.accept(item, emit)
+            ).whenComplete((items, ex) -> {
+                if (ex != null) {
+                    sink.error(ex);
+                    return;
+                }
+
+                UaMonitoredItem item = items.get(0);
+
+                if (!item.getStatusCode().isGood()) {
+                    sink.error(new UaException(
+                        item.getStatusCode(), "failed to monitor " + readValueId.getNodeId()));
+                    return;
+                }
+
+                boolean disposed;
+
+                synchronized (state) {
+                    state.item = item;
+                    disposed = state.disposed;
+                }
+
+                if (disposed) {
+                    delete(item);
+                } else if (backpressure == Backpressure.SERVER_QUEUE && sink.requestedFromDownstream() == 0) {
+                    setReporting(state, false);
+                }
+            });
+        }, overflow);
+    }
+
+    private void setReporting(ItemState state, boolean reporting) {
+        UaMonitoredItem item;
+
+        synchronized (state) {
+            if (state.item == null || state.disposed || state.reporting == reporting) return;
+
+            state.reporting = reporting;
+            item = state.item;
+        }
+
+        subscription.setMonitoringMode(
+            reporting ? MonitoringMode.Reporting : MonitoringMode.Sampling,
+            Collections.singletonList(item)
+        ).whenComplete((statusCodes, ex) -> {
+            if (ex != null) {
+                logger.warn("Failed to set monitoring mode of {}", item.getReadValueId().getNodeId(), ex);
+            }
+        });
+    }
+
+    private void dispose(ItemState state) {
+        UaMonitoredItem item;
+
+        synchronized (state) {
+            state.disposed = true;
+            item = state.item;
+        }
+
+        //监视项尚未建好时由创建回调删除
+        if (item != null) {
+            delete(item);
+        }
+    }
+
+    private void delete(UaMonitoredItem item) {
+        //订阅已删除，监视项随之删除
+        if (deleted) return;
+
+        subscription.deleteMonitoredItems(Collections.singletonList(item)).whenComplete((statusCodes, ex) -> {
+            if (ex != null) {
+                logger.warn("Failed to delete monitored item for {}", item.getReadValueId().getNodeId(), ex);
+            }
+        });
+    }
+
+    private static class ItemState {
+
+        UaMonitoredItem item;
+        boolean reporting = true;
+        boolean disposed = false;
+
+    }
+
+}
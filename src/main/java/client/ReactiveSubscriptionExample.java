@@ -0,0 +1,50 @@
+package client;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+public class ReactiveSubscriptionExample implements ClientExample {
+
+    public static void main(String[] args) throws Exception {
+        ReactiveSubscriptionExample example = new ReactiveSubscriptionExample();
+
+        new ClientExampleRunner(example).run();
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Override
+    public void run(OpcUaClient client, CompletableFuture<OpcUaClient> future) throws Exception {
+        // synchronous connect
+        client.connect().get();
+
+        ReactiveSubscription subscription = ReactiveSubscription.create(client, 100.0).block();
+
+        Flux<String> currentTime = subscription.values(Identifiers.Server_ServerStatus_CurrentTime)
+            .map(value -> "CurrentTime=" + value.getValue().getValue());
+
+        // a consumer that takes a second per value only ever sees the latest one
+        Flux<String> slowDouble = subscription.values(new NodeId(2, "HelloWorld/Dynamic/Double"))
+            .publishOn(Schedulers.single(), 1)
+            .delayElements(Duration.ofSeconds(1))
+            .map(value -> "Double=" + value.getValue().getValue());
+
+        // taking 10 values cancels both fluxes, which deletes their monitored items
+        Flux.merge(currentTime, slowDouble)
+            .take(10)
+            .doOnNext(logger::info)
+            .then(subscription.delete())
+            .block();
+
+        future.complete(client);
+    }
+
+}
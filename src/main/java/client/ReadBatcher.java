@@ -0,0 +1,156 @@
+package client;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.Stack;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 自动合并并发读请求的读批处理器。
+ * <p>
+ * Reads requested through {@link #readValue(NodeId)} are queued for a short window and then sent together in one Read
+ * request; each caller's future is completed from its slot in the shared response. A batch is split into requests of
+ * at most the server's MaxNodesPerRead operation limit, and sent early once that many reads are queued.
+ * <p>
+ * Batched reads use maxAge 0 and return both timestamps; read directly through the client when other parameters are
+ * needed.
+ */
+public class ReadBatcher {
+
+    private final OpcUaClient client;
+    private final long windowMicros;
+    private final int maxNodesPerRead;
+
+    private final ConcurrentLinkedQueue<PendingRead> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    /**
+     * @param windowMicros    how long the first queued read waits for others to join it.
+     * @param maxNodesPerRead the largest Read to send; {@code 0} means no limit.
+     */
+    public ReadBatcher(OpcUaClient client, long windowMicros, int maxNodesPerRead) {
+        this.client = client;
+        this.windowMicros = windowMicros;
+        this.maxNodesPerRead = maxNodesPerRead > 0 ? maxNodesPerRead : Integer.MAX_VALUE;
+    }
+
+    /**
+     * 读取服务器的MaxNodesPerRead后创建批处理器，客户端必须已连接
+     */
+    public static CompletableFuture<ReadBatcher> create(OpcUaClient client, long windowMicros) {
+        return client.readValue(
+            0.0,
+            TimestampsToReturn.Neither,
+            Identifiers.Server_ServerCapabilities_OperationLimits_MaxNodesPerRead
+        ).thenApply(value -> {
+            Object limit = value.getValue().getValue();
+
+            int maxNodesPerRead = limit instanceof UInteger
+                ? (int) Math.min(((UInteger) limit).longValue(), Integer.MAX_VALUE)
+                : 0;
+
+            return new ReadBatcher(client, windowMicros, maxNodesPerRead);
+        });
+    }
+
+    public CompletableFuture<DataValue> readValue(NodeId nodeId) {
+        return read(new ReadValueId(nodeId, AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE));
+    }
+
+    public CompletableFuture<DataValue> read(ReadValueId readValueId) {
+        PendingRead read = new PendingRead(readValueId);
+
+        pending.add(read);
+
+        if (pendingCount.incrementAndGet() >= maxNodesPerRead) {
+            flush();
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            Stack.sharedScheduledExecutor().schedule(this::scheduledFlush, windowMicros, TimeUnit.MICROSECONDS);
+        }
+
+        return read.future;
+    }
+
+    private void scheduledFlush() {
+        flushScheduled.set(false);
+
+        flush();
+    }
+
+    /**
+     * 立即发送所有排队的读请求
+     */
+    public void flush() {
+        while (true) {
+            List<PendingRead> batch = new ArrayList<>();
+
+            PendingRead read;
+            while (batch.size() < maxNodesPerRead && (read = pending.poll()) != null) {
+                batch.add(read);
+            }
+
+            if (batch.isEmpty()) return;
+
+            pendingCount.addAndGet(-batch.size());
+
+            send(batch);
+        }
+    }
+
+    private void send(List<PendingRead> batch) {
+        List<ReadValueId> readValueIds = new ArrayList<>(batch.size());
+        for (PendingRead read : batch) {
+            readValueIds.add(read.readValueId);
+        }
+
+        client.read(0.0, TimestampsToReturn.Both, readValueIds).whenComplete((response, ex) -> {
+            if (ex != null) {
+                batch.forEach(read -> read.future.completeExceptionally(ex));
+                return;
+            }
+
+            DataValue[] results = response.getResults();
+
+            for (int i = 0; i < batch.size(); i++) {
+                if (results != null && i < results.length) {
+                    batch.get(i).future.complete(results[i]);
+                } else {
+                    batch.get(i).future.completeExceptionally(
+                        new IllegalStateException("Read response has " + (results == null ? 0 : results.length) +
+                            " results for " + batch.size() + " nodes"));
+                }
+            }
+        });
+    }
+
+    public int getMaxNodesPerRead() {
+        return maxNodesPerRead;
+    }
+
+    private static class PendingRead {
+
+        final ReadValueId readValueId;
+        final CompletableFuture<DataValue> future = new CompletableFuture<>();
+
+        PendingRead(ReadValueId readValueId) {
+            this.readValueId = readValueId;
+        }
+
+    }
+
+}
@@ -0,0 +1,62 @@
+package client;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ReadBatcherExample implements ClientExample {
+
+    public static void main(String[] args) throws Exception {
+        ReadBatcherExample example = new ReadBatcherExample();
+
+        new ClientExampleRunner(example).run();
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Override
+    public void run(OpcUaClient client, CompletableFuture<OpcUaClient> future) throws Exception {
+        // synchronous connect
+        client.connect().get();
+
+        // collect reads for up to 2ms before sending them as one request
+        ReadBatcher batcher = ReadBatcher.create(client, 2_000).get();
+
+        logger.info("MaxNodesPerRead={}", batcher.getMaxNodesPerRead());
+
+        NodeId[] nodeIds = {
+            Identifiers.Server_ServerStatus_StartTime,
+            Identifiers.Server_ServerStatus_CurrentTime,
+            Identifiers.Server_ServerStatus_State
+        };
+
+        // many threads each reading a single value end up sharing a handful of Read requests
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<CompletableFuture<DataValue>> reads = new ArrayList<>();
+
+        for (int i = 0; i < 300; i++) {
+            NodeId nodeId = nodeIds[i % nodeIds.length];
+
+            reads.add(CompletableFuture.supplyAsync(() -> batcher.readValue(nodeId), executor)
+                .thenCompose(f -> f));
+        }
+
+        CompletableFuture.allOf(reads.toArray(new CompletableFuture[0])).thenRun(() -> {
+            logger.info("{} reads completed, CurrentTime={}",
+                reads.size(), reads.get(1).join().getValue().getValue());
+
+            executor.shutdown();
+            future.complete(client);
+        });
+    }
+
+}
@@ -11,8 +11,7 @@
 package client;
 
 import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
-import org.eclipse.milo.opcua.sdk.client.model.nodes.objects.ServerNode;
-import org.eclipse.milo.opcua.sdk.client.model.nodes.variables.ServerStatusNode;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
 import org.eclipse.milo.opcua.stack.core.Identifiers;
 import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
 import org.eclipse.milo.opcua.stack.core.types.enumerated.ServerState;
@@ -39,40 +38,50 @@ public class ReadNodeExample implements ClientExample {
         // synchronous connect
         client.connect().get();
 
-        // Get a typed reference to the Server object: ServerNode
-        ServerNode serverNode = client.getAddressSpace().getObjectNode(
-            Identifiers.Server,
-            ServerNode.class
-        ).get();
-
-//        client.getAddressSpace().getVariableNode()
-
+        // Prefetch the properties of the Server object and the ServerStatus
+        // components in one Read; their NodeIds are well known, so nothing
+        // has to be browsed or translated first and the getters below are
+        // answered locally
+        NodePrefetch prefetch = NodePrefetch.builder(client)
+            .attributes(Identifiers.Server_ServerArray, AttributeId.Value)
+            .attributes(Identifiers.Server_NamespaceArray, AttributeId.Value)
+            .attributes(Identifiers.Server_ServerStatus, AttributeId.Value)
+            .attributes(Identifiers.Server_ServerStatus_BuildInfo, AttributeId.Value)
+            .attributes(Identifiers.Server_ServerStatus_StartTime, AttributeId.Value)
+            .attributes(Identifiers.Server_ServerStatus_CurrentTime, AttributeId.Value)
+            .attributes(Identifiers.Server_ServerStatus_State, AttributeId.Value)
+            .build().get();
 
         // Read properties of the Server object...
-        String[] serverArray = serverNode.getServerArray().get();
-        String[] namespaceArray = serverNode.getNamespaceArray().get();
+        String[] serverArray = prefetch.getValue(Identifiers.Server_ServerArray, String[].class);
+        String[] namespaceArray = prefetch.getValue(Identifiers.Server_NamespaceArray, String[].class);
 
         logger.info("ServerArray={}", Arrays.toString(serverArray));
         logger.info("NamespaceArray={}", Arrays.toString(namespaceArray));
 
         // Read the value of attribute the ServerStatus variable component
-        ServerStatusDataType serverStatus = serverNode.getServerStatus().get();
+        ServerStatusDataType status = prefetch.getValue(Identifiers.Server_ServerStatus, ServerStatusDataType.class);
 
-        logger.info("ServerStatus={}", serverStatus);
+        logger.info("ServerStatus={}", status);
 
-        // Get a typed reference to the ServerStatus variable
-        // component and read value attributes individually
-        ServerStatusNode serverStatusNode = serverNode.getServerStatusNode().get();
-        BuildInfo buildInfo = serverStatusNode.getBuildInfo().get();
-        DateTime startTime = serverStatusNode.getStartTime().get();
-        DateTime currentTime = serverStatusNode.getCurrentTime().get();
-        ServerState state = serverStatusNode.getState().get();
+        // Read the ServerStatus components individually
+        BuildInfo buildInfo = prefetch.getValue(Identifiers.Server_ServerStatus_BuildInfo, BuildInfo.class);
+        DateTime startTime = prefetch.getValue(Identifiers.Server_ServerStatus_StartTime, DateTime.class);
+        DateTime currentTime = prefetch.getValue(Identifiers.Server_ServerStatus_CurrentTime, DateTime.class);
+        Integer stateValue = prefetch.getValue(Identifiers.Server_ServerStatus_State, Integer.class);
+        ServerState state = stateValue != null ? ServerState.from(stateValue) : null;
 
         logger.info("ServerStatus.BuildInfo={}", buildInfo);
         logger.info("ServerStatus.StartTime={}", startTime);
         logger.info("ServerStatus.CurrentTime={}", currentTime);
         logger.info("ServerStatus.State={}", state);
 
+        // one more round trip brings every prefetched value up to date
+        prefetch.refresh().get();
+
+        logger.info("ServerStatus.CurrentTime={}", prefetch.getValue(
+            Identifiers.Server_ServerStatus_CurrentTime, DateTime.class));
+
         future.complete(client);
     }
 
@@ -0,0 +1,300 @@
+package client;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaMonitoredItem;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaSubscription;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaSubscriptionManager.SubscriptionListener;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoredItemCreateRequest;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoringParameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * 断线重连后恢复订阅。
+ * <p>
+ * After a network interruption the client reactivates its session on a new secure channel, or creates a new session
+ * and transfers the subscriptions to it with TransferSubscriptions, and fills gaps in the notification sequence with
+ * Republish. This class covers the two cases it can't recover from by itself:
+ * <ul>
+ * <li>When the transfer fails because the server no longer has the subscription, it is re-created with all of its
+ * monitored items, sent in bulk in chunks of MaxMonitoredItemsPerCall, and the consumers registered here are attached
+ * to the new items. The new subscription is requested with the previous one's publishing interval, lifetime and
+ * keep-alive counts, notifications per publish, publishing mode and priority. {@link RecreationListener}s are told
+ * about the replacement.</li>
+ * <li>When notifications are lost because the server could not republish them, the current values of the
+ * subscription's items are read, in batched Reads, and handed to their consumers so that no item is left stale.</li>
+ * </ul>
+ * Consumers must be set through {@link #setValueConsumer} and {@link #setEventConsumer} to be carried over, since a
+ * monitored item does not expose the consumer set on it directly. For the same reason the TimestampsToReturn and
+ * discardOldest an item was created with are given through {@link #setCreateOptions}; items without them are
+ * re-created with {@code Both} and {@code discardOldest = true}. Call {@link #remove} when deleting an item, or what
+ * was recorded for it stays here.
+ */
+public class SubscriptionRecovery implements SubscriptionListener {
+
+    public interface RecreationListener {
+
+        /**
+         * Called after a subscription the server had lost has been created again.
+         *
+         * @param items the new monitored items, in the order of the previous subscription's items.
+         */
+        void onSubscriptionRecreated(UaSubscription previous, UaSubscription replacement, List<UaMonitoredItem> items);
+
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Map<UaMonitoredItem, BiConsumer<UaMonitoredItem, DataValue>> valueConsumers =
+        new ConcurrentHashMap<>();
+
+    private final Map<UaMonitoredItem, BiConsumer<UaMonitoredItem, Variant[]>> eventConsumers =
+        new ConcurrentHashMap<>();
+
+    private final Map<UaMonitoredItem, CreateOptions> createOptions = new ConcurrentHashMap<>();
+
+    private final List<RecreationListener> recreationListeners = new CopyOnWriteArrayList<>();
+
+    private final OpcUaClient client;
+    private final ReadBatcher readBatcher;
+    private final int maxItemsPerCall;
+
+    private SubscriptionRecovery(OpcUaClient client, ReadBatcher readBatcher, int maxItemsPerCall) {
+        this.client = client;
+        this.readBatcher = readBatcher;
+        this.maxItemsPerCall = maxItemsPerCall > 0 ? maxItemsPerCall : Integer.MAX_VALUE;
+    }
+
+    /**
+     * 读取服务器的操作限制并注册监听器，客户端必须已连接
+     */
+    public static CompletableFuture<SubscriptionRecovery> install(OpcUaClient client) {
+        return client.readValue(
+            0.0,
+            TimestampsToReturn.Neither,
+            Identifiers.Server_ServerCapabilities_OperationLimits_MaxMonitoredItemsPerCall
+        ).thenCombine(ReadBatcher.create(client, 1000), (value, readBatcher) -> {
+            Object limit = value.getValue().getValue();
+
+            int maxItemsPerCall = limit instanceof UInteger
+                ? (int) Math.min(((UInteger) limit).longValue(), Integer.MAX_VALUE)
+                : 0;
+
+            SubscriptionRecovery recovery = new SubscriptionRecovery(client, readBatcher, maxItemsPerCall);
+
+            client.getSubscriptionManager().addSubscriptionListener(recovery);
+
+            return recovery;
+        });
+    }
+
+    /**
+     * 设置值回调，订阅重建后回调会转移到新的监视项上
+     */
+    public void setValueConsumer(UaMonitoredItem item, BiConsumer<UaMonitoredItem, DataValue> consumer) {
+        item.setValueConsumer(consumer);
+        valueConsumers.put(item, consumer);
+    }
+
+    /**
+     * 设置事件回调，订阅重建后回调会转移到新的监视项上
+     */
+    public void setEventConsumer(UaMonitoredItem item, BiConsumer<UaMonitoredItem, Variant[]> consumer) {
+        item.setEventConsumer(consumer);
+        eventConsumers.put(item, consumer);
+    }
+
+    /**
+     * 记录监视项创建时的参数，订阅重建时沿用
+     */
+    public void setCreateOptions(UaMonitoredItem item, TimestampsToReturn timestamps, boolean discardOldest) {
+        createOptions.put(item, new CreateOptions(timestamps, discardOldest));
+    }
+
+    /**
+     * 删除监视项时调用，丢弃为它记录的回调和参数
+     */
+    public void remove(UaMonitoredItem item) {
+        valueConsumers.remove(item);
+        eventConsumers.remove(item);
+        createOptions.remove(item);
+    }
+
+    public void addRecreationListener(RecreationListener listener) {
+        recreationListeners.add(listener);
+    }
+
+    public void removeRecreationListener(RecreationListener listener) {
+        recreationListeners.remove(listener);
+    }
+
+    /**
+     * 注销监听器
+     */
+    public void uninstall() {
+        client.getSubscriptionManager().removeSubscriptionListener(this);
+    }
+
+    @Override
+    public void onSubscriptionTransferFailed(UaSubscription subscription, StatusCode statusCode) {
+        logger.warn("Transfer of subscription {} failed ({}), re-creating {} items",
+            subscription.getSubscriptionId(), statusCode, subscription.getMonitoredItems().size());
+
+        recreate(subscription).whenComplete((replacement, ex) -> {
+            if (ex != null) {
+                logger.error("Failed to re-create subscription {}", subscription.getSubscriptionId(), ex);
+            }
+        });
+    }
+
+    @Override
+    public void onNotificationDataLost(UaSubscription subscription) {
+        logger.warn("Notifications of subscription {} lost, reading current values",
+            subscription.getSubscriptionId());
+
+        for (UaMonitoredItem item : subscription.getMonitoredItems()) {
+            BiConsumer<UaMonitoredItem, DataValue> consumer = valueConsumers.get(item);
+
+            if (consumer == null || !item.getStatusCode().isGood()) continue;
+
+            readBatcher.read(item.getReadValueId()).whenComplete((value, ex) -> {
+                if (ex == null) {
+                    consumer.accept(item, value);
+                }
+            });
+        }
+    }
+
+    private CompletableFuture<UaSubscription> recreate(UaSubscription previous) {
+        List<UaMonitoredItem> previousItems = new ArrayList<>(previous.getMonitoredItems());
+
+        //一次CreateMonitoredItems只有一个TimestampsToReturn，按它分组
+        Map<TimestampsToReturn, List<Integer>> groups = new LinkedHashMap<>();
+
+        for (int i = 0; i < previousItems.size(); i++) {
+            groups.computeIfAbsent(createOptionsOf(previousItems.get(i)).timestamps, t -> new ArrayList<>()).add(i);
+        }
+
+        return client.getSubscriptionManager()
+            .createSubscription(
+                previous.getRequestedPublishingInterval(),
+                previous.getRequestedLifetimeCount(),
+                previous.getRequestedMaxKeepAliveCount(),
+                previous.getMaxNotificationsPerPublish(),
+                previous.isPublishingEnabled(),
+                previous.getPriority()
+            )
+            .thenCompose(replacement -> {
+                UaMonitoredItem[] created = new UaMonitoredItem[previousItems.size()];
+                List<CompletableFuture<Void>> chunks = new ArrayList<>();
+
+                groups.forEach((timestamps, indices) -> {
+                    for (int from = 0; from < indices.size(); from += maxItemsPerCall) {
+                        List<Integer> chunk = indices.subList(from, Math.min(indices.size(), from + maxItemsPerCall));
+                        List<UaMonitoredItem> chunkItems = new ArrayList<>(chunk.size());
+
+                        chunk.forEach(i -> chunkItems.add(previousItems.get(i)));
+
+                        chunks.add(createItems(replacement, timestamps, chunkItems).thenAccept(items -> {
+                            for (int i = 0; i < items.size(); i++) {
+                                created[chunk.get(i)] = items.get(i);
+                            }
+                        }));
+                    }
+                });
+
+                return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).thenApply(v -> {
+                    List<UaMonitoredItem> items = new ArrayList<>(Arrays.asList(created));
+
+                    long failed = items.stream().filter(item -> !item.getStatusCode().isGood()).count();
+
+                    //建立失败的监视项不会再有通知
+                    items.stream().filter(item -> !item.getStatusCode().isGood()).forEach(this::remove);
+
+                    logger.info("Re-created subscription {} as {} with {} items, {} failed",
+                        previous.getSubscriptionId(), replacement.getSubscriptionId(), items.size(), failed);
+
+                    recreationListeners.forEach(l -> l.onSubscriptionRecreated(previous, replacement, items));
+
+                    return replacement;
+                });
+            });
+    }
+
+    private CompletableFuture<List<UaMonitoredItem>> createItems(
+        UaSubscription replacement,
+        TimestampsToReturn timestamps,
+        List<UaMonitoredItem> chunk) {
+
+        List<MonitoredItemCreateRequest> requests = new ArrayList<>(chunk.size());
+
+        for (UaMonitoredItem item : chunk) {
+            MonitoringParameters parameters = new MonitoringParameters(
+                replacement.nextClientHandle(),
+                item.getRevisedSamplingInterval(),
+                item.getMonitoringFilter(),
+                item.getRevisedQueueSize(),
+                createOptionsOf(item).discardOldest
+            );
+
+            requests.add(new MonitoredItemCreateRequest(item.getReadValueId(), item.getMonitoringMode(), parameters));
+        }
+
+        return replacement.createMonitoredItems(
+            timestamps,
+            requests,
+            (newItem, i) -> {
+                UaMonitoredItem previousItem = chunk.get(i);
+
+                BiConsumer<UaMonitoredItem, DataValue> valueConsumer = valueConsumers.remove(previousItem);
+                BiConsumer<UaMonitoredItem, Variant[]> eventConsumer = eventConsumers.remove(previousItem);
+                CreateOptions options = createOptions.remove(previousItem);
+
+                if (valueConsumer != null) {
+                    setValueConsumer(newItem, valueConsumer);
+                }
+                if (eventConsumer != null) {
+                    setEventConsumer(newItem, eventConsumer);
+                }
+                if (options != null) {
+                    createOptions.put(newItem, options);
+                }
+            }
+        );
+    }
+
+    private CreateOptions createOptionsOf(UaMonitoredItem item) {
+        return createOptions.getOrDefault(item, CreateOptions.DEFAULT);
+    }
+
+    private static class CreateOptions {
+
+        static final CreateOptions DEFAULT = new CreateOptions(TimestampsToReturn.Both, true);
+
+        final TimestampsToReturn timestamps;
+        final boolean discardOldest;
+
+        CreateOptions(TimestampsToReturn timestamps, boolean discardOldest) {
+            this.timestamps = timestamps;
+            this.discardOldest = discardOldest;
+        }
+
+    }
+
+}
@@ -0,0 +1,74 @@
+package client;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaMonitoredItem;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaSubscription;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.MonitoringMode;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoredItemCreateRequest;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoringParameters;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+public class SubscriptionRecoveryExample implements ClientExample {
+
+    public static void main(String[] args) throws Exception {
+        SubscriptionRecoveryExample example = new SubscriptionRecoveryExample();
+
+        new ClientExampleRunner(example).run();
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Override
+    public void run(OpcUaClient client, CompletableFuture<OpcUaClient> future) throws Exception {
+        // synchronous connect
+        client.connect().get();
+
+        SubscriptionRecovery recovery = SubscriptionRecovery.install(client).get();
+
+        recovery.addRecreationListener((previous, replacement, items) -> logger.info(
+            "subscription {} replaced by {}", previous.getSubscriptionId(), replacement.getSubscriptionId()));
+
+        UaSubscription subscription = client.getSubscriptionManager().createSubscription(1000.0).get();
+
+        ReadValueId readValueId = new ReadValueId(
+            Identifiers.Server_ServerStatus_CurrentTime,
+            AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE
+        );
+
+        MonitoringParameters parameters = new MonitoringParameters(
+            subscription.nextClientHandle(), 1000.0, null, uint(10), true);
+
+        MonitoredItemCreateRequest request = new MonitoredItemCreateRequest(
+            readValueId, MonitoringMode.Reporting, parameters);
+
+        // consumers set through the recovery follow the item if the subscription has to be re-created
+        subscription.createMonitoredItems(
+            TimestampsToReturn.Both,
+            newArrayList(request),
+            (item, id) -> recovery.setValueConsumer(item, this::onSubscriptionValue)
+        ).get();
+
+        // restart the server or pull the cable within the next minute to watch the recovery
+        Thread.sleep(60_000);
+        future.complete(client);
+    }
+
+    private void onSubscriptionValue(UaMonitoredItem item, DataValue value) {
+        logger.info(
+            "subscription value received: item={}, value={}",
+            item.getReadValueId().getNodeId(), value.getValue());
+    }
+
+}
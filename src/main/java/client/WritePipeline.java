@@ -0,0 +1,220 @@
+package client;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.WriteValue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 流水线式写入：多个Write请求同时在途，同一结点的写入保持顺序。
+ * <p>
+ * Writes to different nodes are coalesced into one Write request of up to MaxNodesPerWrite values, and up to
+ * {@code maxInFlight} requests are outstanding at once. A node has at most one write in flight; its next write waits
+ * until the previous one is answered, so writes to the same node are applied in the order they were submitted.
+ * <p>
+ * In latest-value-wins mode a node keeps only its newest queued value: a write that arrives while an older one is
+ * still queued replaces it, and both futures complete with the status of the value actually written. The value in
+ * flight is never replaced.
+ */
+public class WritePipeline {
+
+    private final OpcUaClient client;
+    private final int maxInFlight;
+    private final int maxNodesPerWrite;
+
+    private final Set<NodeId> latestValueWins = ConcurrentHashMap.newKeySet();
+
+    //以下状态由this保护
+    private final Map<NodeId, NodeQueue> queues = new HashMap<>();
+    private final Set<NodeId> ready = new LinkedHashSet<>();
+    private int inFlight = 0;
+
+    /**
+     * @param maxInFlight      the most Write requests outstanding at once.
+     * @param maxNodesPerWrite the most values in one Write request; {@code 0} means no limit.
+     */
+    public WritePipeline(OpcUaClient client, int maxInFlight, int maxNodesPerWrite) {
+        this.client = client;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.maxNodesPerWrite = maxNodesPerWrite > 0 ? maxNodesPerWrite : Integer.MAX_VALUE;
+    }
+
+    /**
+     * 读取服务器的MaxNodesPerWrite后创建写流水线，客户端必须已连接
+     */
+    public static CompletableFuture<WritePipeline> create(OpcUaClient client, int maxInFlight) {
+        return client.readValue(
+            0.0,
+            TimestampsToReturn.Neither,
+            Identifiers.Server_ServerCapabilities_OperationLimits_MaxNodesPerWrite
+        ).thenApply(value -> {
+            Object limit = value.getValue().getValue();
+
+            int maxNodesPerWrite = limit instanceof UInteger
+                ? (int) Math.min(((UInteger) limit).longValue(), Integer.MAX_VALUE)
+                : 0;
+
+            return new WritePipeline(client, maxInFlight, maxNodesPerWrite);
+        });
+    }
+
+    /**
+     * 设置结点是否只保留最新的待写值
+     */
+    public void setLatestValueWins(NodeId nodeId, boolean enabled) {
+        if (enabled) {
+            latestValueWins.add(nodeId);
+        } else {
+            latestValueWins.remove(nodeId);
+        }
+    }
+
+    /**
+     * 提交一次写入
+     *
+     * @return a future completed with the status code of the write.
+     */
+    public CompletableFuture<StatusCode> write(NodeId nodeId, DataValue value) {
+        CompletableFuture<StatusCode> future = new CompletableFuture<>();
+
+        List<List<PendingWrite>> batches;
+
+        synchronized (this) {
+            NodeQueue queue = queues.computeIfAbsent(nodeId, id -> new NodeQueue());
+
+            PendingWrite last = queue.pending.peekLast();
+
+            if (last != null && latestValueWins.contains(nodeId)) {
+                last.value = value;
+                last.futures.add(future);
+            } else {
+                queue.pending.add(new PendingWrite(nodeId, value, future));
+            }
+
+            if (!queue.inFlight) {
+                ready.add(nodeId);
+            }
+
+            batches = takeBatches();
+        }
+
+        batches.forEach(this::send);
+
+        return future;
+    }
+
+    /**
+     * @return the number of writes queued or in flight.
+     */
+    public synchronized int getPendingCount() {
+        return queues.values().stream().mapToInt(q -> q.pending.size() + (q.inFlight ? 1 : 0)).sum();
+    }
+
+    //从就绪结点中各取一个写入组成请求，直到在途请求数达到上限
+    private List<List<PendingWrite>> takeBatches() {
+        List<List<PendingWrite>> batches = new ArrayList<>();
+
+        while (inFlight < maxInFlight && !ready.isEmpty()) {
+            List<PendingWrite> batch = new ArrayList<>();
+
+            Iterator<NodeId> iterator = ready.iterator();
+            while (iterator.hasNext() && batch.size() < maxNodesPerWrite) {
+                NodeQueue queue = queues.get(iterator.next());
+                iterator.remove();
+
+                queue.inFlight = true;
+                batch.add(queue.pending.poll());
+            }
+
+            inFlight++;
+            batches.add(batch);
+        }
+
+        return batches;
+    }
+
+    private void send(List<PendingWrite> batch) {
+        List<WriteValue> writeValues = new ArrayList<>(batch.size());
+
+        for (PendingWrite write : batch) {
+            writeValues.add(new WriteValue(write.nodeId, AttributeId.Value.uid(), null, write.value));
+        }
+
+        client.write(writeValues).whenComplete((response, ex) -> {
+            List<List<PendingWrite>> next;
+
+            synchronized (this) {
+                for (PendingWrite write : batch) {
+                    NodeQueue queue = queues.get(write.nodeId);
+                    queue.inFlight = false;
+
+                    if (queue.pending.isEmpty()) {
+                        queues.remove(write.nodeId);
+                    } else {
+                        ready.add(write.nodeId);
+                    }
+                }
+
+                inFlight--;
+
+                next = takeBatches();
+            }
+
+            StatusCode[] results = ex == null ? response.getResults() : null;
+
+            for (int i = 0; i < batch.size(); i++) {
+                PendingWrite write = batch.get(i);
+
+                if (ex != null) {
+                    write.futures.forEach(f -> f.completeExceptionally(ex));
+                } else if (results != null && i < results.length) {
+                    StatusCode statusCode = results[i];
+                    write.futures.forEach(f -> f.complete(statusCode));
+                } else {
+                    write.futures.forEach(f -> f.completeExceptionally(
+                        new IllegalStateException("Write response is missing results")));
+                }
+            }
+
+            next.forEach(this::send);
+        });
+    }
+
+    private static class NodeQueue {
+
+        final ArrayDeque<PendingWrite> pending = new ArrayDeque<>();
+        boolean inFlight;
+
+    }
+
+    private static class PendingWrite {
+
+        final NodeId nodeId;
+        final List<CompletableFuture<StatusCode>> futures = new ArrayList<>(1);
+        DataValue value;
+
+        PendingWrite(NodeId nodeId, DataValue value, CompletableFuture<StatusCode> future) {
+            this.nodeId = nodeId;
+            this.value = value;
+            futures.add(future);
+        }
+
+    }
+
+}
@@ -0,0 +1,54 @@
+package client;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class WritePipelineExample implements ClientExample {
+
+    public static void main(String[] args) throws Exception {
+        WritePipelineExample example = new WritePipelineExample();
+
+        new ClientExampleRunner(example).run();
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Override
+    public void run(OpcUaClient client, CompletableFuture<OpcUaClient> future) throws Exception {
+        // synchronous connect
+        client.connect().get();
+
+        WritePipeline pipeline = WritePipeline.create(client, 8).get();
+
+        NodeId int32 = NodeId.parse("ns=2;s=HelloWorld/ScalarTypes/Int32");
+        NodeId int64 = NodeId.parse("ns=2;s=HelloWorld/ScalarTypes/Int64");
+
+        // only the newest queued setpoint matters for this node
+        pipeline.setLatestValueWins(int64, true);
+
+        List<CompletableFuture<StatusCode>> writes = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++) {
+            writes.add(pipeline.write(int32, new DataValue(new Variant(i), null, null)));
+            writes.add(pipeline.write(int64, new DataValue(new Variant((long) i), null, null)));
+        }
+
+        CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).thenRun(() -> {
+            long good = writes.stream().filter(w -> w.join().isGood()).count();
+
+            logger.info("{} of {} writes good", good, writes.size());
+
+            future.complete(client);
+        });
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.dennis.opcua.milo_opc;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import server.ExampleServer;
+import server.ServerMetrics;
+import server.ServiceMetrics;
+
+/**
+ * 以Prometheus文本格式输出服务器性能计数器。
+ * <p>
+ * Latency quantiles describe the last interval closed by the namespace, so scraping does not reset anything and
+ * several scrapers can read the endpoint side by side. The summary's {@code _sum} and {@code _count} are cumulative
+ * since startup, as Prometheus expects, so rate() over them gives the average latency of any window.
+ */
+@RestController
+public class MetricsController {
+
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+    private final ExampleServer server;
+
+    public MetricsController(ExampleServer server) {
+        this.server = server;
+    }
+
+    @GetMapping(value = "/metrics", produces = "text/plain; version=0.0.4; charset=utf-8")
+    public String metrics() {
+        ServerMetrics metrics = server.getCncNamespace().getMetrics();
+
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("# TYPE opcua_requests_total counter\n");
+        for (ServiceMetrics service : metrics.getServices()) {
+            sample(sb, "opcua_requests_total", service, service.getRequests());
+        }
+
+        sb.append("# TYPE opcua_operations_total counter\n");
+        for (ServiceMetrics service : metrics.getServices()) {
+            sample(sb, "opcua_operations_total", service, service.getOperations());
+        }
+
+        sb.append("# TYPE opcua_rejected_requests_total counter\n");
+        for (ServiceMetrics service : metrics.getServices()) {
+            sample(sb, "opcua_rejected_requests_total", service, service.getRejected());
+        }
+
+        sb.append("# TYPE opcua_request_latency_seconds summary\n");
+        for (ServiceMetrics service : metrics.getServices()) {
+            for (double quantile : QUANTILES) {
+                sb.append("opcua_request_latency_seconds{service=\"").append(service.getName())
+                    .append("\",quantile=\"").append(quantile).append("\"} ")
+                    .append(service.getLatencyMillis(quantile * 100) / 1000.0).append('\n');
+            }
+
+            sb.append("opcua_request_latency_seconds_sum{service=\"").append(service.getName()).append("\"} ")
+                .append(service.getLatencySumSeconds()).append('\n');
+            sample(sb, "opcua_request_latency_seconds_count", service, service.getRequests());
+        }
+
+        metrics.getGauges().forEach((name, gauge) -> {
+            String metric = "opcua_" + snakeCase(name);
+
+            sb.append("# TYPE ").append(metric).append(" gauge\n");
+            sb.append(metric).append(' ').append(gauge.getAsDouble()).append('\n');
+        });
+
+        return sb.toString();
+    }
+
+    private static void sample(StringBuilder sb, String metric, ServiceMetrics service, long value) {
+        sb.append(metric).append("{service=\"").append(service.getName()).append("\"} ").append(value).append('\n');
+    }
+
+    //MonitoredItems -> monitored_items
+    private static String snakeCase(String name) {
+        return name.replaceAll("([a-z])([A-Z])", "$1_$2").toLowerCase();
+    }
+
+}
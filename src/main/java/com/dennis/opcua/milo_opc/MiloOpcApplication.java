@@ -2,6 +2,8 @@ package com.dennis.opcua.milo_opc;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+import server.ExampleServer;
 
 @SpringBootApplication
 public class MiloOpcApplication {
@@ -10,4 +12,14 @@ public class MiloOpcApplication {
         SpringApplication.run(MiloOpcApplication.class, args);
     }
 
+    //随应用启动OPC UA服务器，应用关闭时一并关闭
+    @Bean(destroyMethod = "shutdown")
+    public ExampleServer exampleServer() throws Exception {
+        ExampleServer server = ExampleServer.getInstance();
+
+        server.startup().get();
+
+        return server;
+    }
+
 }
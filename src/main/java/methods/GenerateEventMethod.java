@@ -19,6 +19,7 @@ import org.eclipse.milo.opcua.stack.core.Identifiers;
 import org.eclipse.milo.opcua.stack.core.UaException;
 import org.eclipse.milo.opcua.stack.core.types.builtin.*;
 import org.eclipse.milo.opcua.stack.core.types.structured.Argument;
+import server.ServiceEvents;
 
 import java.util.UUID;
 
@@ -72,8 +73,18 @@ public class GenerateEventMethod extends AbstractMethodInvocationHandler {
         eventNode.setMessage(LocalizedText.english("event message!"));
         eventNode.setSeverity(ushort(2));
 
+        ServiceEvents.EventPost event = new ServiceEvents.EventPost();
+        event.begin();
+
         server.getEventBus().post(eventNode);
 
+        if (event.shouldCommit()) {
+            event.eventType = eventTypeId.toParseableString();
+            event.sourceNode = getNode().getNodeId().toParseableString();
+            event.session = invocationContext.getSession().map(ServiceEvents::sessionName).orElse(null);
+            event.commit();
+        }
+
         eventNode.delete();
 
         return new Variant[0];
@@ -0,0 +1,559 @@
+package server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.eclipse.milo.opcua.sdk.core.Reference;
+import org.eclipse.milo.opcua.sdk.server.api.NodeManager;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaFolderNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNodeContext;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaObjectNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.delegates.AttributeDelegate;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.UaSerializationException;
+import org.eclipse.milo.opcua.stack.core.serialization.OpcUaBinaryStreamDecoder;
+import org.eclipse.milo.opcua.stack.core.serialization.OpcUaBinaryStreamEncoder;
+import org.eclipse.milo.opcua.stack.core.serialization.SerializationContext;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UByte;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ubyte;
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ushort;
+
+/**
+ * 命名空间的二进制快照。
+ * <p>
+ * {@link #export} writes every node reachable from a root through hierarchical forward references, and all of their
+ * references, to a compact binary file. {@link #load} memory-maps the file, builds all nodes first and then adds
+ * them and their references to the NodeManager in bulk.
+ * <p>
+ * Folders, objects and variables are captured with all of their attributes: qualified BrowseNames, localized
+ * DisplayNames and Descriptions, write masks, and for variables the array dimensions, sampling and historizing
+ * attributes. Values are stored with the OPC UA binary encoding, so any Variant the stack can encode round-trips,
+ * arrays, matrices and structures included; a value it can't encode fails the export instead of being dropped.
+ * <p>
+ * Attribute delegates are behavior, but they decide who may read and write a node, so they are not left for the
+ * caller to guess: the kind of each variable's delegate is stored and the same delegate is attached on load. Only
+ * delegates that can be rebuilt without code are supported, a node with any other delegate fails the export.
+ * Method handlers are not captured.
+ */
+public final class AddressSpaceSnapshot {
+
+    private static final int MAGIC = 0x434e4353; // "CNCS"
+    private static final int VERSION = 2;
+
+    private static final byte NODE_FOLDER = 1;
+    private static final byte NODE_OBJECT = 2;
+    private static final byte NODE_VARIABLE = 3;
+
+    private static final byte ID_LOCAL = 0;
+    private static final byte ID_FOREIGN = 1;
+
+    private static final byte DELEGATE_NONE = 0;
+    private static final byte DELEGATE_VALUE_LOGGING = 1;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AddressSpaceSnapshot.class);
+
+    private AddressSpaceSnapshot() {}
+
+    /**
+     * 导出快照
+     *
+     * @param nodeManager    the namespace's NodeManager.
+     * @param context        encodes the variable values.
+     * @param root           the root of the exported tree, e.g. the namespace's top folder.
+     * @param exclude        nodes that are not exported, together with everything only reachable through them.
+     * @param namespaceIndex index of the namespace; its NodeIds are stored without the index so the snapshot can be
+     *                       loaded when the namespace is registered at a different index.
+     * @param file           the snapshot file, overwritten if it exists.
+     * @return the number of exported nodes.
+     * @throws IOException if the root doesn't exist, the file can't be written, or a value or delegate can't be
+     *                     stored in a snapshot. The file is left untouched in every case.
+     */
+    public static int export(
+            NodeManager<UaNode> nodeManager,
+            SerializationContext context,
+            NodeId root,
+            Predicate<NodeId> exclude,
+            UShort namespaceIndex,
+            Path file) throws IOException {
+
+        //根结点不存在时不能用空快照覆盖文件
+        if (!nodeManager.getNode(root).isPresent()) {
+            throw new IOException("snapshot root " + root + " does not exist");
+        }
+
+        Map<NodeId, UaNode> nodes = new LinkedHashMap<>();
+        Deque<NodeId> pending = new ArrayDeque<>();
+        pending.add(root);
+
+        while (!pending.isEmpty()) {
+            NodeId nodeId = pending.poll();
+
+            if (nodes.containsKey(nodeId) || exclude.test(nodeId)) continue;
+
+            Optional<UaNode> node = nodeManager.getNode(nodeId);
+            if (!node.isPresent() || nodeType(node.get()) == 0) continue;
+
+            nodes.put(nodeId, node.get());
+
+            for (Reference reference : node.get().getReferences()) {
+                if (reference.isForward() && isHierarchical(reference.getReferenceTypeId())) {
+                    reference.getTargetNodeId().local().ifPresent(pending::add);
+                }
+            }
+        }
+
+        Set<Reference> references = new LinkedHashSet<>();
+        for (UaNode node : nodes.values()) {
+            for (Reference reference : node.getReferences()) {
+                Optional<NodeId> target = reference.getTargetNodeId().local();
+
+                // HasTypeDefinition is rebuilt from the type definition written with each node; references into this
+                // namespace are only kept if their target is exported too
+                if (reference.getSourceNodeId().equals(node.getNodeId()) &&
+                        !Identifiers.HasTypeDefinition.equals(reference.getReferenceTypeId()) &&
+                        target.isPresent() &&
+                        (!target.get().getNamespaceIndex().equals(namespaceIndex) || nodes.containsKey(target.get()))) {
+                    references.add(reference);
+                }
+            }
+        }
+
+        // written to a temporary file first so a failed export never leaves a truncated snapshot behind
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(nodes.size());
+            for (UaNode node : nodes.values()) {
+                writeNode(out, node, context, namespaceIndex);
+            }
+
+            out.writeInt(references.size());
+            for (Reference reference : references) {
+                writeNodeId(out, reference.getSourceNodeId(), namespaceIndex);
+                writeNodeId(out, reference.getReferenceTypeId(), namespaceIndex);
+                writeNodeId(out, reference.getTargetNodeId().local().orElse(NodeId.NULL_VALUE), namespaceIndex);
+                out.writeBoolean(reference.isForward());
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+
+        LOGGER.info("Exported {} nodes and {} references to {}", nodes.size(), references.size(), file);
+
+        return nodes.size();
+    }
+
+    /**
+     * 加载快照并批量添加到NodeManager
+     *
+     * @param context        the namespace's node context; nodes are added to its NodeManager.
+     * @param namespaceIndex index the namespace is registered at now.
+     * @param file           the snapshot file.
+     * @return the loaded nodes.
+     * @throws IOException if the file can't be read, is of another version, or is truncated or corrupt. Nothing is
+     *                     added to the NodeManager then.
+     */
+    public static List<UaNode> load(UaNodeContext context, UShort namespaceIndex, Path file) throws IOException {
+        List<UaNode> nodes;
+        List<Reference> references;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("not a namespace snapshot: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported snapshot version " + version + ": " + file);
+            }
+
+            SerializationContext serializationContext = context.getServer().getSerializationContext();
+
+            int nodeCount = buffer.getInt();
+            nodes = new ArrayList<>(nodeCount);
+            for (int i = 0; i < nodeCount; i++) {
+                nodes.add(readNode(buffer, context, serializationContext, namespaceIndex));
+            }
+
+            int referenceCount = buffer.getInt();
+            references = new ArrayList<>(referenceCount);
+            for (int i = 0; i < referenceCount; i++) {
+                NodeId sourceId = readNodeId(buffer, namespaceIndex);
+                NodeId referenceTypeId = readNodeId(buffer, namespaceIndex);
+                NodeId targetId = readNodeId(buffer, namespaceIndex);
+                boolean forward = buffer.get() != 0;
+
+                references.add(new Reference(sourceId, referenceTypeId, targetId.expanded(), forward));
+            }
+        } catch (RuntimeException e) {
+            // a truncated or corrupt file shows up as BufferUnderflowException, IllegalStateException and the like
+            throw new IOException("corrupt snapshot " + file + ": " + e, e);
+        }
+
+        NodeManager<UaNode> nodeManager = context.getNodeManager();
+
+        Map<NodeId, UaNode> byId = new HashMap<>(nodes.size() * 2);
+        for (UaNode node : nodes) {
+            nodeManager.addNode(node);
+            byId.put(node.getNodeId(), node);
+        }
+
+        for (Reference reference : references) {
+            UaNode source = byId.get(reference.getSourceNodeId());
+
+            if (source != null) {
+                source.addReference(reference);
+            }
+        }
+
+        LOGGER.info("Loaded {} nodes and {} references from {}", nodes.size(), references.size(), file);
+
+        return nodes;
+    }
+
+    private static boolean isHierarchical(NodeId referenceTypeId) {
+        return Identifiers.Organizes.equals(referenceTypeId) ||
+                Identifiers.HasComponent.equals(referenceTypeId) ||
+                Identifiers.HasProperty.equals(referenceTypeId);
+    }
+
+    private static byte nodeType(UaNode node) {
+        if (node instanceof UaFolderNode) return NODE_FOLDER;
+        if (node instanceof UaVariableNode) return NODE_VARIABLE;
+        if (node instanceof UaObjectNode) return NODE_OBJECT;
+        return 0;
+    }
+
+    //region Writing
+    private static void writeNode(
+            DataOutputStream out,
+            UaNode node,
+            SerializationContext context,
+            UShort namespaceIndex) throws IOException {
+
+        byte type = nodeType(node);
+
+        out.writeByte(type);
+        writeNodeId(out, node.getNodeId(), namespaceIndex);
+        writeQualifiedName(out, node.getBrowseName(), namespaceIndex);
+        writeLocalizedText(out, node.getDisplayName());
+        writeLocalizedText(out, node.getDescription());
+        out.writeInt(node.getWriteMask() != null ? node.getWriteMask().intValue() : 0);
+        out.writeInt(node.getUserWriteMask() != null ? node.getUserWriteMask().intValue() : 0);
+
+        if (type == NODE_FOLDER || type == NODE_OBJECT) {
+            UaObjectNode object = (UaObjectNode) node;
+            NodeId typeDefinition = object.getTypeDefinition();
+
+            writeNodeId(out, typeDefinition != null ? typeDefinition : Identifiers.BaseObjectType, namespaceIndex);
+            out.writeByte(object.getEventNotifier() != null ? object.getEventNotifier().intValue() : 0);
+        } else if (type == NODE_VARIABLE) {
+            UaVariableNode variable = (UaVariableNode) node;
+            NodeId typeDefinition = variable.getTypeDefinition() != null
+                    ? variable.getTypeDefinition()
+                    : Identifiers.BaseDataVariableType;
+
+            writeNodeId(out, typeDefinition, namespaceIndex);
+            writeNodeId(out, variable.getDataType(), namespaceIndex);
+            out.writeInt(variable.getValueRank() != null ? variable.getValueRank() : -1);
+
+            UInteger[] arrayDimensions = variable.getArrayDimensions();
+            out.writeInt(arrayDimensions != null ? arrayDimensions.length : -1);
+            if (arrayDimensions != null) {
+                for (UInteger dimension : arrayDimensions) {
+                    out.writeInt(dimension.intValue());
+                }
+            }
+
+            out.writeByte(variable.getAccessLevel() != null ? variable.getAccessLevel().intValue() : 0);
+            out.writeByte(variable.getUserAccessLevel() != null ? variable.getUserAccessLevel().intValue() : 0);
+            out.writeDouble(variable.getMinimumSamplingInterval() != null
+                    ? variable.getMinimumSamplingInterval() : Double.NaN);
+            out.writeBoolean(Boolean.TRUE.equals(variable.getHistorizing()));
+            out.writeByte(delegateKind(variable));
+            writeValue(out, variable, context);
+        }
+    }
+
+    private static byte delegateKind(UaVariableNode variable) throws IOException {
+        AttributeDelegate delegate = variable.getAttributeDelegate();
+
+        if (delegate == null) return DELEGATE_NONE;
+        if (delegate.getClass() == ValueLoggingDelegate.class) return DELEGATE_VALUE_LOGGING;
+
+        throw new IOException(String.format(
+                "%s has a %s, which can't be restored from a snapshot",
+                variable.getNodeId(), delegate.getClass().getSimpleName()));
+    }
+
+    private static void writeNodeId(DataOutputStream out, NodeId nodeId, UShort namespaceIndex) throws IOException {
+        String parseable = nodeId.toParseableString();
+
+        if (nodeId.getNamespaceIndex().equals(namespaceIndex)) {
+            // "ns=N;s=..." -> "s=...", the index is put back on load
+            out.writeByte(ID_LOCAL);
+            writeString(out, parseable.substring(parseable.indexOf(';') + 1));
+        } else {
+            out.writeByte(ID_FOREIGN);
+            writeString(out, parseable);
+        }
+    }
+
+    private static void writeQualifiedName(
+            DataOutputStream out,
+            QualifiedName name,
+            UShort namespaceIndex) throws IOException {
+
+        if (name.getNamespaceIndex().equals(namespaceIndex)) {
+            out.writeByte(ID_LOCAL);
+        } else {
+            out.writeByte(ID_FOREIGN);
+            out.writeShort(name.getNamespaceIndex().intValue());
+        }
+        writeString(out, name.getName());
+    }
+
+    private static void writeLocalizedText(DataOutputStream out, LocalizedText text) throws IOException {
+        out.writeBoolean(text != null);
+
+        if (text != null) {
+            writeString(out, text.getLocale());
+            writeString(out, text.getText());
+        }
+    }
+
+    private static void writeValue(
+            DataOutputStream out,
+            UaVariableNode variable,
+            SerializationContext context) throws IOException {
+
+        DataValue dataValue = variable.getValue();
+        Variant value = dataValue != null ? dataValue.getValue() : Variant.NULL_VALUE;
+
+        ByteBuf buffer = Unpooled.buffer();
+        try {
+            OpcUaBinaryStreamEncoder encoder = new OpcUaBinaryStreamEncoder(context);
+            encoder.setBuffer(buffer);
+            encoder.writeVariant(null, value);
+
+            byte[] bytes = new byte[buffer.readableBytes()];
+            buffer.readBytes(bytes);
+
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } catch (UaSerializationException e) {
+            throw new IOException(String.format(
+                    "value of %s can't be stored in a snapshot: %s", variable.getNodeId(), e.getMessage()), e);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+    //endregion
+
+    //region Reading
+    private static UaNode readNode(
+            ByteBuffer buffer,
+            UaNodeContext context,
+            SerializationContext serializationContext,
+            UShort namespaceIndex) {
+
+        byte type = buffer.get();
+        NodeId nodeId = readNodeId(buffer, namespaceIndex);
+        QualifiedName browseName = readQualifiedName(buffer, namespaceIndex);
+        LocalizedText displayName = readLocalizedText(buffer);
+        LocalizedText description = readLocalizedText(buffer);
+        UInteger writeMask = uint(buffer.getInt() & 0xFFFFFFFFL);
+        UInteger userWriteMask = uint(buffer.getInt() & 0xFFFFFFFFL);
+
+        UaNode node;
+
+        switch (type) {
+            case NODE_FOLDER:
+            case NODE_OBJECT: {
+                NodeId typeDefinition = readNodeId(buffer, namespaceIndex);
+                UByte eventNotifier = ubyte(buffer.get() & 0xFF);
+
+                UaObjectNode object;
+                if (type == NODE_FOLDER) {
+                    object = new UaFolderNode(context, nodeId, browseName, displayName);
+                } else {
+                    object = UaObjectNode.builder(context)
+                            .setNodeId(nodeId)
+                            .setBrowseName(browseName)
+                            .setDisplayName(displayName)
+                            .setTypeDefinition(typeDefinition)
+                            .build();
+                }
+
+                object.setEventNotifier(eventNotifier);
+                node = object;
+                break;
+            }
+
+            case NODE_VARIABLE: {
+                NodeId typeDefinition = readNodeId(buffer, namespaceIndex);
+                NodeId dataType = readNodeId(buffer, namespaceIndex);
+                int valueRank = buffer.getInt();
+
+                int dimensions = buffer.getInt();
+                UInteger[] arrayDimensions = null;
+                if (dimensions >= 0) {
+                    arrayDimensions = new UInteger[dimensions];
+                    for (int i = 0; i < dimensions; i++) {
+                        arrayDimensions[i] = uint(buffer.getInt() & 0xFFFFFFFFL);
+                    }
+                }
+
+                UByte accessLevel = ubyte(buffer.get() & 0xFF);
+                UByte userAccessLevel = ubyte(buffer.get() & 0xFF);
+                double minimumSamplingInterval = buffer.getDouble();
+                boolean historizing = buffer.get() != 0;
+                byte delegateKind = buffer.get();
+
+                UaVariableNode variable = UaVariableNode.builder(context)
+                        .setNodeId(nodeId)
+                        .setBrowseName(browseName)
+                        .setDisplayName(displayName)
+                        .setTypeDefinition(typeDefinition)
+                        .setDataType(dataType)
+                        .setValueRank(valueRank)
+                        .setArrayDimensions(arrayDimensions)
+                        .setAccessLevel(accessLevel)
+                        .setUserAccessLevel(userAccessLevel)
+                        .setMinimumSamplingInterval(
+                                Double.isNaN(minimumSamplingInterval) ? null : minimumSamplingInterval)
+                        .setHistorizing(historizing)
+                        .build();
+
+                variable.setValue(new DataValue(readValue(buffer, serializationContext)));
+
+                switch (delegateKind) {
+                    case DELEGATE_NONE:
+                        break;
+                    case DELEGATE_VALUE_LOGGING:
+                        variable.setAttributeDelegate(new ValueLoggingDelegate());
+                        break;
+                    default:
+                        throw new IllegalStateException("unknown delegate kind in snapshot: " + delegateKind);
+                }
+
+                node = variable;
+                break;
+            }
+
+            default:
+                throw new IllegalStateException("unknown node type in snapshot: " + type);
+        }
+
+        node.setDescription(description);
+        node.setWriteMask(writeMask);
+        node.setUserWriteMask(userWriteMask);
+
+        return node;
+    }
+
+    private static NodeId readNodeId(ByteBuffer buffer, UShort namespaceIndex) {
+        byte kind = buffer.get();
+        String parseable = readString(buffer);
+
+        if (kind == ID_LOCAL) {
+            return NodeId.parse("ns=" + namespaceIndex + ";" + parseable);
+        } else {
+            return NodeId.parse(parseable);
+        }
+    }
+
+    private static QualifiedName readQualifiedName(ByteBuffer buffer, UShort namespaceIndex) {
+        UShort index = buffer.get() == ID_LOCAL ? namespaceIndex : ushort(buffer.getShort() & 0xFFFF);
+
+        return new QualifiedName(index, readString(buffer));
+    }
+
+    private static LocalizedText readLocalizedText(ByteBuffer buffer) {
+        if (buffer.get() == 0) return null;
+
+        String locale = readString(buffer);
+        String text = readString(buffer);
+
+        return new LocalizedText(locale, text);
+    }
+
+    private static Variant readValue(ByteBuffer buffer, SerializationContext context) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+
+        ByteBuf encoded = Unpooled.wrappedBuffer(bytes);
+        try {
+            OpcUaBinaryStreamDecoder decoder = new OpcUaBinaryStreamDecoder(context);
+            decoder.setBuffer(encoded);
+
+            return decoder.readVariant(null);
+        } finally {
+            encoded.release();
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+
+        if (length < 0) return null;
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    //endregion
+
+}
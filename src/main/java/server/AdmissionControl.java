@@ -0,0 +1,154 @@
+package server;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.eclipse.milo.opcua.sdk.server.Session;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按会话的准入控制：服务请求限流和监控项数量上限。
+ * <p>
+ * Every Read, Write, Browse and Call costs one token per operation from the session's {@link TokenBucket}. Requests
+ * that find the bucket short are rejected immediately with Bad_TooManyOperations, so a client polling far too fast
+ * only throttles itself. A CreateMonitoredItems request that would take a session over its monitored item cap is
+ * rejected by {@link MonitoredItemAdmission}, every item with Bad_TooManyMonitoredItems. A session's items are counted
+ * on its subscriptions at the time of the request, so items move with their subscription on TransferSubscriptions.
+ * <p>
+ * A limit of {@code 0} disables that check. Requests without a session are never limited.
+ */
+public class AdmissionControl {
+
+    //会话空闲超过该时间后丢弃其令牌桶
+    private static final long IDLE_SESSION_MINUTES = 10;
+
+    private final double operationsPerSecond;
+    private final int operationBurst;
+    private final int maxMonitoredItemsPerSession;
+
+    private final Cache<NodeId, TokenBucket> buckets = CacheBuilder.newBuilder()
+            .expireAfterAccess(IDLE_SESSION_MINUTES, TimeUnit.MINUTES)
+            .build();
+
+    //所有会话的监控项总数，只用于统计
+    private final LongAdder monitoredItems = new LongAdder();
+
+    private final LongAdder admittedOperations = new LongAdder();
+    private final LongAdder rejectedOperations = new LongAdder();
+    private final LongAdder rejectedMonitoredItems = new LongAdder();
+
+    public AdmissionControl(double operationsPerSecond, int operationBurst, int maxMonitoredItemsPerSession) {
+        this.operationsPerSecond = operationsPerSecond;
+        this.operationBurst = operationBurst;
+        this.maxMonitoredItemsPerSession = maxMonitoredItemsPerSession;
+    }
+
+    public static AdmissionControl unlimited() {
+        return new AdmissionControl(0, 0, 0);
+    }
+
+    /**
+     * 申请执行{@code operations}个操作
+     *
+     * @return {@code false} if the session is over its rate and the request must be rejected.
+     */
+    public boolean tryAcquire(Optional<Session> session, int operations) {
+        if (operationsPerSecond <= 0 || !session.isPresent()) {
+            admittedOperations.add(operations);
+            return true;
+        }
+
+        TokenBucket bucket;
+        try {
+            bucket = buckets.get(
+                    session.get().getSessionId(),
+                    () -> new TokenBucket(operationsPerSecond, Math.max(operationBurst, 1))
+            );
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+
+        if (bucket.tryAcquire(operations)) {
+            admittedOperations.add(operations);
+            return true;
+        } else {
+            rejectedOperations.add(operations);
+            return false;
+        }
+    }
+
+    /**
+     * 检查会话能否再创建{@code items}个监控项，不能时计入被拒绝的数量
+     * <p>
+     * Items are only counted once they exist, so two requests of one session that are checked at the same time may
+     * together go over the cap by up to one request.
+     *
+     * @param existing the data items the session's subscriptions hold now.
+     * @return {@code false} if the request must be rejected.
+     */
+    public boolean checkMonitoredItems(int existing, int items) {
+        if (maxMonitoredItemsPerSession <= 0) return true;
+
+        if (existing + items <= maxMonitoredItemsPerSession) return true;
+
+        rejectedMonitoredItems.add(items);
+        return false;
+    }
+
+    public void addMonitoredItem() {
+        monitoredItems.increment();
+    }
+
+    public void removeMonitoredItem() {
+        monitoredItems.decrement();
+    }
+
+    public int getMonitoredItemCount() {
+        return monitoredItems.intValue();
+    }
+
+    /**
+     * @return the number of sessions holding a token bucket, i.e. with requests in the last few minutes.
+     */
+    public long getRateLimitedSessionCount() {
+        return buckets.size();
+    }
+
+    /**
+     * @return the highest token bucket utilization among the active sessions, from 0 to 1.
+     */
+    public double getMaxRateUtilization() {
+        return buckets.asMap().values().stream().mapToDouble(TokenBucket::getUtilization).max().orElse(0.0);
+    }
+
+    public long getAdmittedOperations() {
+        return admittedOperations.sum();
+    }
+
+    public long getRejectedOperations() {
+        return rejectedOperations.sum();
+    }
+
+    public long getRejectedMonitoredItems() {
+        return rejectedMonitoredItems.sum();
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("operationsPerSecond", operationsPerSecond)
+                .add("operationBurst", operationBurst)
+                .add("maxMonitoredItemsPerSession", maxMonitoredItemsPerSession)
+                .add("rateLimitedSessions", getRateLimitedSessionCount())
+                .add("monitoredItems", getMonitoredItemCount())
+                .add("rejectedOperations", getRejectedOperations())
+                .add("rejectedMonitoredItems", getRejectedMonitoredItems())
+                .toString();
+    }
+
+}
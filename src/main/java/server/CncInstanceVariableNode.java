@@ -0,0 +1,109 @@
+package server;
+
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNodeContext;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UByte;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+
+/**
+ * 机床实例下的成员变量结点（享元）。
+ * <p>
+ * Only the NodeId and the Value are stored per instance; every type-level attribute is read from the
+ * {@link CncMemberDeclaration} shared by all instances of the type. The type-level attributes are therefore
+ * read-only on instances: their setters throw {@link UnsupportedOperationException}, since the inherited ones would
+ * store into fields the getters never read. Change the type's declaration instead.
+ * <p>
+ * The node still has the attribute fields it inherits from {@link UaVariableNode}, since the NodeManager only holds
+ * UaNodes. They are left at the shared defaults of the short constructor, so an instance costs those field slots but
+ * no attribute objects of its own. {@code server.InstanceFootprint} in the benchmarks module measures what this saves
+ * against instances built by the NodeFactory.
+ */
+public class CncInstanceVariableNode extends UaVariableNode {
+
+    private final CncMemberDeclaration declaration;
+
+    public CncInstanceVariableNode(UaNodeContext context, NodeId nodeId, CncMemberDeclaration declaration) {
+        super(context, nodeId, declaration.getBrowseName(), declaration.getDisplayName());
+
+        this.declaration = declaration;
+
+        setValue(declaration.getDefaultValue());
+    }
+
+    public CncMemberDeclaration getDeclaration() {
+        return declaration;
+    }
+
+    @Override
+    public LocalizedText getDescription() {
+        return declaration.getDescription();
+    }
+
+    @Override
+    public NodeId getDataType() {
+        return declaration.getDataType();
+    }
+
+    @Override
+    public Integer getValueRank() {
+        return declaration.getValueRank();
+    }
+
+    @Override
+    public UInteger[] getArrayDimensions() {
+        return declaration.getArrayDimensions();
+    }
+
+    @Override
+    public UByte getAccessLevel() {
+        return declaration.getAccessLevel();
+    }
+
+    @Override
+    public UByte getUserAccessLevel() {
+        return declaration.getUserAccessLevel();
+    }
+
+    @Override
+    public NodeId getTypeDefinition() {
+        return declaration.getTypeDefinition();
+    }
+
+    @Override
+    public void setDescription(LocalizedText description) {
+        throw readOnly("Description");
+    }
+
+    @Override
+    public void setDataType(NodeId dataType) {
+        throw readOnly("DataType");
+    }
+
+    @Override
+    public void setValueRank(Integer valueRank) {
+        throw readOnly("ValueRank");
+    }
+
+    @Override
+    public void setArrayDimensions(UInteger[] arrayDimensions) {
+        throw readOnly("ArrayDimensions");
+    }
+
+    @Override
+    public void setAccessLevel(UByte accessLevel) {
+        throw readOnly("AccessLevel");
+    }
+
+    @Override
+    public void setUserAccessLevel(UByte userAccessLevel) {
+        throw readOnly("UserAccessLevel");
+    }
+
+    private UnsupportedOperationException readOnly(String attribute) {
+        return new UnsupportedOperationException(
+                attribute + " of " + getNodeId() + " is shared with its type; change the CncMemberDeclaration instead");
+    }
+
+}
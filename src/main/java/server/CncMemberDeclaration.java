@@ -0,0 +1,148 @@
+package server;
+
+import com.google.common.base.MoreObjects;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UByte;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+
+/**
+ * 类型结点中一个成员变量（instance declaration）的类型级属性。
+ * <p>
+ * Everything here is immutable and identical for every instance of the type, so it is captured once from the
+ * declaration node and shared by all {@link CncInstanceVariableNode}s instead of being copied into each of them.
+ */
+public class CncMemberDeclaration {
+
+    private final NodeId referenceTypeId;
+    private final QualifiedName browseName;
+    private final LocalizedText displayName;
+    private final LocalizedText description;
+    private final NodeId dataType;
+    private final Integer valueRank;
+    private final UInteger[] arrayDimensions;
+    private final UByte accessLevel;
+    private final UByte userAccessLevel;
+    private final NodeId typeDefinition;
+    private final DataValue defaultValue;
+
+    public CncMemberDeclaration(
+            NodeId referenceTypeId,
+            QualifiedName browseName,
+            LocalizedText displayName,
+            LocalizedText description,
+            NodeId dataType,
+            Integer valueRank,
+            UInteger[] arrayDimensions,
+            UByte accessLevel,
+            UByte userAccessLevel,
+            NodeId typeDefinition,
+            DataValue defaultValue) {
+
+        this.referenceTypeId = referenceTypeId;
+        this.browseName = browseName;
+        this.displayName = displayName;
+        this.description = description;
+        this.dataType = dataType;
+        this.valueRank = valueRank;
+        this.arrayDimensions = arrayDimensions;
+        this.accessLevel = accessLevel;
+        this.userAccessLevel = userAccessLevel;
+        this.typeDefinition = typeDefinition;
+        this.defaultValue = defaultValue;
+    }
+
+    /**
+     * 从类型结点下的成员变量结点读取类型级属性
+     *
+     * @param declaration     the variable node declared as a member of the type node.
+     * @param referenceTypeId HasComponent or HasProperty, the reference from the type to the declaration.
+     * @return the shared type-level attributes of that member.
+     */
+    public static CncMemberDeclaration from(UaVariableNode declaration, NodeId referenceTypeId) {
+        NodeId typeDefinition = declaration.getTypeDefinition();
+
+        return new CncMemberDeclaration(
+                referenceTypeId,
+                declaration.getBrowseName(),
+                declaration.getDisplayName(),
+                declaration.getDescription(),
+                declaration.getDataType(),
+                declaration.getValueRank(),
+                declaration.getArrayDimensions(),
+                declaration.getAccessLevel(),
+                declaration.getUserAccessLevel(),
+                typeDefinition != null ? typeDefinition : defaultTypeDefinition(referenceTypeId),
+                declaration.getValue()
+        );
+    }
+
+    //属性默认为PropertyType，组件默认为BaseDataVariableType
+    private static NodeId defaultTypeDefinition(NodeId referenceTypeId) {
+        return Identifiers.HasProperty.equals(referenceTypeId)
+                ? Identifiers.PropertyType
+                : Identifiers.BaseDataVariableType;
+    }
+
+    /**
+     * @return HasComponent or HasProperty, the reference from an instance to its member.
+     */
+    public NodeId getReferenceTypeId() {
+        return referenceTypeId;
+    }
+
+    public QualifiedName getBrowseName() {
+        return browseName;
+    }
+
+    public LocalizedText getDisplayName() {
+        return displayName;
+    }
+
+    public LocalizedText getDescription() {
+        return description;
+    }
+
+    public NodeId getDataType() {
+        return dataType;
+    }
+
+    public Integer getValueRank() {
+        return valueRank;
+    }
+
+    public UInteger[] getArrayDimensions() {
+        return arrayDimensions;
+    }
+
+    public UByte getAccessLevel() {
+        return accessLevel;
+    }
+
+    public UByte getUserAccessLevel() {
+        return userAccessLevel;
+    }
+
+    public NodeId getTypeDefinition() {
+        return typeDefinition;
+    }
+
+    public DataValue getDefaultValue() {
+        return defaultValue;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("referenceTypeId", referenceTypeId)
+                .add("browseName", browseName)
+                .add("dataType", dataType)
+                .add("accessLevel", accessLevel)
+                .toString();
+    }
+
+}
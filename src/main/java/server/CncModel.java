@@ -0,0 +1,38 @@
+package server;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * 车间的机床模型：需要在命名空间中存在的CNCType实例。
+ * <p>
+ * Passed to {@link CncNamespace#reconfigure(CncModel)}, which diffs it against the machines that are live in the
+ * address space and only adds or removes the difference.
+ */
+public class CncModel {
+
+    private final Set<String> machines;
+
+    public CncModel(Collection<String> machines) {
+        this.machines = ImmutableSet.copyOf(machines);
+    }
+
+    public static CncModel of(String... machines) {
+        return new CncModel(ImmutableSet.copyOf(machines));
+    }
+
+    public Set<String> getMachines() {
+        return machines;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("machines", machines)
+                .toString();
+    }
+
+}
@@ -6,12 +6,23 @@ import org.eclipse.milo.opcua.sdk.core.AccessLevel;
 import org.eclipse.milo.opcua.sdk.core.Reference;
 import org.eclipse.milo.opcua.sdk.core.ValueRank;
 import org.eclipse.milo.opcua.sdk.server.OpcUaServer;
+import org.eclipse.milo.opcua.sdk.server.Session;
+import org.eclipse.milo.opcua.sdk.server.SessionListener;
+import org.eclipse.milo.opcua.sdk.server.api.AddressSpaceFilter;
 import org.eclipse.milo.opcua.sdk.server.api.DataItem;
 import org.eclipse.milo.opcua.sdk.server.api.ManagedNamespace;
 import org.eclipse.milo.opcua.sdk.server.api.MonitoredItem;
+import org.eclipse.milo.opcua.sdk.server.api.SimpleAddressSpaceFilter;
 import org.eclipse.milo.opcua.sdk.server.api.nodes.VariableNode;
+import org.eclipse.milo.opcua.sdk.server.api.services.AttributeServices.ReadContext;
+import org.eclipse.milo.opcua.sdk.server.api.services.AttributeServices.WriteContext;
+import org.eclipse.milo.opcua.sdk.server.api.services.MethodServices.CallContext;
+import org.eclipse.milo.opcua.sdk.server.api.services.ViewServices.BrowseContext;
+import org.eclipse.milo.opcua.sdk.server.api.services.ViewServices.RegisterNodesContext;
+import org.eclipse.milo.opcua.sdk.server.api.services.ViewServices.UnregisterNodesContext;
 import org.eclipse.milo.opcua.sdk.server.model.nodes.objects.BaseEventNode;
 import org.eclipse.milo.opcua.sdk.server.model.nodes.objects.DataTypeEncodingNode;
+import org.eclipse.milo.opcua.sdk.server.model.nodes.objects.GeneralModelChangeEventNode;
 import org.eclipse.milo.opcua.sdk.server.model.nodes.objects.ServerNode;
 import org.eclipse.milo.opcua.sdk.server.model.nodes.variables.AnalogItemNode;
 import org.eclipse.milo.opcua.sdk.server.nodes.*;
@@ -19,20 +30,49 @@ import org.eclipse.milo.opcua.sdk.server.nodes.delegates.AttributeDelegate;
 import org.eclipse.milo.opcua.sdk.server.nodes.delegates.AttributeDelegateChain;
 import org.eclipse.milo.opcua.sdk.server.util.SubscriptionModel;
 import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
 import org.eclipse.milo.opcua.stack.core.UaException;
 import org.eclipse.milo.opcua.stack.core.types.builtin.*;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.ModelChangeStructureVerbMask;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.CallMethodRequest;
+import org.eclipse.milo.opcua.stack.core.types.structured.CallMethodResult;
+import org.eclipse.milo.opcua.stack.core.types.structured.ModelChangeStructureDataType;
 import org.eclipse.milo.opcua.stack.core.types.structured.Range;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.eclipse.milo.opcua.stack.core.types.structured.ViewDescription;
+import org.eclipse.milo.opcua.stack.core.types.structured.WriteValue;
+import org.eclipse.milo.opcua.stack.core.util.Unit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import types.CustomDataType;
 
+import javax.xml.stream.XMLStreamException;
+
+import java.io.IOException;
 import java.lang.reflect.Array;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.*;
 
@@ -42,6 +82,24 @@ public class CncNamespace extends ManagedNamespace {
 
     static final String NAMESPACE_URI = "urn:eclipse:milo:cnc";
 
+    //命名空间快照文件，存在时直接加载，否则创建后导出
+    private static final String SNAPSHOT_PROPERTY = "cnc.snapshot";
+
+    //启动时导入的NodeSet2文件，逗号分隔
+    private static final String NODESETS_PROPERTY = "cnc.nodesets";
+
+    //启动时创建的机床实例名称，逗号分隔
+    private static final String MACHINES_PROPERTY = "cnc.machines";
+
+    //每个会话RegisterNodes别名的上限
+    private static final int MAX_ALIASES_PER_SESSION = 10_000;
+
+    //超过该数量的实例并行创建
+    private static final int PARALLEL_INSTANTIATION_THRESHOLD = 256;
+
+    //Diagnostics文件夹的刷新周期，也是延迟分位数的统计区间
+    private static final int DIAGNOSTICS_INTERVAL_SECONDS = 5;
+
     //region Values
     private static final Object[][] STATIC_SCALAR_NODES = new Object[][]{
             {"Boolean", Identifiers.Boolean, new Variant(false)},
@@ -101,11 +159,69 @@ public class CncNamespace extends ManagedNamespace {
     //创建订阅模型
     private final SubscriptionModel subscriptionModel;
 
+    //机床实例模板，"CNC/Machines/" + 名称
+    private CncTypeTemplate machineTemplate;
+
+    //当前在地址空间中的机床实例
+    private final Map<String, CncTypeTemplate.Instance> machines = new LinkedHashMap<>();
+
+    private UaFolderNode machinesFolder;
+
+    //"CNC/Machines" 文件夹的NodeVersion，每次重新配置加一
+    private long machinesVersion = 0L;
+
+    //重新配置时持有写锁，浏览和读写持有读锁
+    private final ReadWriteLock modelLock = new ReentrantReadWriteLock();
+
+    //RegisterNodes返回的别名，按会话记录
+    private final NodeAliases nodeAliases;
+
+    //会话关闭时丢弃其别名表
+    private final SessionListener sessionListener = new SessionListener() {
+        @Override
+        public void onSessionClosed(Session session) {
+            nodeAliases.removeSession(session.getSessionId());
+        }
+    };
+
+    //每个结点上的监控项，结点被删除时通知
+    private final Map<NodeId, Set<DataItem>> dataItemsByNode = new ConcurrentHashMap<>();
+
+    //会话限流与监控项上限
+    private final AdmissionControl admissionControl;
+
+    //服务计数和延迟，由Diagnostics文件夹和Prometheus端点读取
+    private final ServerMetrics metrics = new ServerMetrics();
+
+    //是否创建HelloWorld示例结点
+    private final boolean demoNodes;
+
+    //导入NodeSet时新注册的命名空间，其结点也在本NodeManager中，请求同样路由到这里
+    private final Set<UShort> importedNamespaces = ConcurrentHashMap.newKeySet();
+
+    private final AddressSpaceFilter filter = SimpleAddressSpaceFilter.create(nodeId -> {
+        UShort index = nodeId.getNamespaceIndex();
+
+        return index.equals(getNamespaceIndex()) || importedNamespaces.contains(index);
+    });
+
     //在指定的命名空间URI中创建server
     CncNamespace(OpcUaServer server) {
+        this(server, AdmissionControl.unlimited());
+    }
+
+    CncNamespace(OpcUaServer server, AdmissionControl admissionControl) {
+        this(server, admissionControl, false);
+    }
+
+    CncNamespace(OpcUaServer server, AdmissionControl admissionControl, boolean demoNodes) {
         super(server, NAMESPACE_URI);
 
+        this.admissionControl = admissionControl;
+        this.demoNodes = demoNodes;
+
         subscriptionModel = new SubscriptionModel(server, this);
+        nodeAliases = new NodeAliases(getNamespaceIndex(), MAX_ALIASES_PER_SESSION);
     }
 
     @Override
@@ -113,6 +229,211 @@ public class CncNamespace extends ManagedNamespace {
         //注册该命名空间
         super.onStartup();
 
+        getServer().getSessionManager().addSessionListener(sessionListener);
+
+        String snapshot = System.getProperty(SNAPSHOT_PROPERTY);
+
+        if (snapshot != null && Files.exists(Paths.get(snapshot))) {
+            //快照无法加载时重新创建，关闭时导出的新快照会替换它
+            if (!loadSnapshot(Paths.get(snapshot))) {
+                addCncFolder();
+            }
+        } else {
+            UaFolderNode folderNode = addCncFolder();
+
+            if (snapshot != null) {
+                exportSnapshot(folderNode.getNodeId(), Paths.get(snapshot));
+            }
+        }
+
+        if (demoNodes) {
+            addHelloWorldFolder();
+        }
+
+        String nodeSets = System.getProperty(NODESETS_PROPERTY);
+
+        if (nodeSets != null) {
+            importNodeSets(nodeSets.split(","));
+        }
+
+        String machineNames = System.getProperty(MACHINES_PROPERTY);
+
+        if (machineNames != null) {
+            reconfigure(new CncModel(Arrays.stream(machineNames.split(","))
+                    .map(String::trim)
+                    .filter(name -> !name.isEmpty())
+                    .collect(Collectors.toList())));
+        }
+
+        addDiagnostics();
+
+        //region Set the EventNotifier bit on Server Node for Events.
+        UaNode serverNode = getServer()
+                .getAddressSpaceManager()
+                .getManagedNode(Identifiers.Server)
+                .orElse(null);
+
+        if (serverNode instanceof ServerNode) {
+            ((ServerNode) serverNode).setEventNotifier(ubyte(1));
+
+            // Post a bogus Event every couple seconds
+            getServer().getScheduledExecutorService().scheduleAtFixedRate(() -> {
+                try {
+                    BaseEventNode eventNode = getServer().getEventFactory().createEvent(
+                            newNodeId(UUID.randomUUID()),
+                            Identifiers.BaseEventType
+                    );
+
+                    eventNode.setBrowseName(new QualifiedName(1, "foo"));
+                    eventNode.setDisplayName(LocalizedText.english("foo"));
+                    eventNode.setEventId(ByteString.of(new byte[]{0, 1, 2, 3}));
+                    eventNode.setEventType(Identifiers.BaseEventType);
+                    eventNode.setSourceNode(serverNode.getNodeId());
+                    eventNode.setSourceName(serverNode.getDisplayName().getText());
+                    eventNode.setTime(DateTime.now());
+                    eventNode.setReceiveTime(DateTime.NULL_VALUE);
+                    eventNode.setMessage(LocalizedText.english("event message!"));
+                    eventNode.setSeverity(ushort(2));
+
+                    ServiceEvents.EventPost event = new ServiceEvents.EventPost();
+                    event.begin();
+
+                    getServer().getEventBus().post(eventNode);
+
+                    if (event.shouldCommit()) {
+                        event.eventType = Identifiers.BaseEventType.toParseableString();
+                        event.sourceNode = serverNode.getNodeId().toParseableString();
+                        event.commit();
+                    }
+
+                    eventNode.delete();
+                } catch (Throwable e) {
+                    logger.error("Error creating EventNode: {}", e.getMessage(), e);
+                }
+            }, 0, 2, TimeUnit.SECONDS);
+        }
+        //endregion
+    }
+
+    @Override
+    protected void onShutdown() {
+        String snapshot = System.getProperty(SNAPSHOT_PROPERTY);
+
+        if (snapshot != null) {
+            exportSnapshot(newNodeId("cnc"), Paths.get(snapshot));
+        }
+
+        getServer().getSessionManager().removeSessionListener(sessionListener);
+
+        super.onShutdown();
+    }
+
+    /**
+     * 创建Diagnostics文件夹，定期刷新其中的性能计数器
+     * <p>
+     * Each service gets a folder with its request counters, the request rate and latency percentiles of the last
+     * interval; the gauges registered on {@link ServerMetrics} are added as variables of the Diagnostics folder itself.
+     */
+    private void addDiagnostics() {
+        metrics.gauge("Sessions", () -> getServer().getSessionManager().getAllSessions().size());
+        metrics.gauge("Subscriptions", () -> getServer().getSubscriptions().size());
+        metrics.gauge("MonitoredItems", admissionControl::getMonitoredItemCount);
+        metrics.gauge("RejectedMonitoredItems", admissionControl::getRejectedMonitoredItems);
+        metrics.gauge("MaxRateUtilization", admissionControl::getMaxRateUtilization);
+
+        UaFolderNode diagnosticsFolder = new UaFolderNode(
+                getNodeContext(),
+                newNodeId("Diagnostics"),
+                newQualifiedName("Diagnostics"),
+                LocalizedText.english("Diagnostics")
+        );
+
+        getNodeManager().addNode(diagnosticsFolder);
+
+        diagnosticsFolder.addReference(new Reference(
+                diagnosticsFolder.getNodeId(),
+                Identifiers.Organizes,
+                Identifiers.ObjectsFolder.expanded(),
+                false
+        ));
+
+        List<Runnable> updates = new ArrayList<>();
+
+        for (ServiceMetrics service : metrics.getServices()) {
+            String prefix = "Diagnostics/" + service.getName();
+
+            UaFolderNode serviceFolder = new UaFolderNode(
+                    getNodeContext(),
+                    newNodeId(prefix),
+                    newQualifiedName(service.getName()),
+                    LocalizedText.english(service.getName())
+            );
+
+            getNodeManager().addNode(serviceFolder);
+            diagnosticsFolder.addOrganizes(serviceFolder);
+
+            Map<String, Supplier<Object>> counters = new LinkedHashMap<>();
+            counters.put("Requests", service::getRequests);
+            counters.put("Operations", service::getOperations);
+            counters.put("Rejected", service::getRejected);
+            counters.put("RequestRate", service::getRequestRate);
+            counters.put("LatencyP50", () -> service.getLatencyMillis(50));
+            counters.put("LatencyP99", () -> service.getLatencyMillis(99));
+            counters.put("LatencyP999", () -> service.getLatencyMillis(99.9));
+            counters.put("LatencyMax", service::getMaxLatencyMillis);
+
+            counters.forEach((name, value) -> updates.add(addDiagnosticsVariable(serviceFolder, prefix, name, value)));
+        }
+
+        metrics.getGauges().forEach((name, gauge) -> updates.add(addDiagnosticsVariable(
+                diagnosticsFolder, "Diagnostics", name, gauge::getAsDouble
+        )));
+
+        getServer().getScheduledExecutorService().scheduleAtFixedRate(() -> {
+            try {
+                metrics.roll();
+                updates.forEach(Runnable::run);
+            } catch (Throwable e) {
+                logger.error("Error updating diagnostics: {}", e.getMessage(), e);
+            }
+        }, DIAGNOSTICS_INTERVAL_SECONDS, DIAGNOSTICS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    //添加一个只读的计数器变量，返回刷新其值的任务
+    private Runnable addDiagnosticsVariable(
+            UaFolderNode folder,
+            String prefix,
+            String name,
+            Supplier<Object> value) {
+
+        Object initial = value.get();
+
+        UaVariableNode node = new UaVariableNode.UaVariableNodeBuilder(getNodeContext())
+                .setNodeId(newNodeId(prefix + "/" + name))
+                .setAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_ONLY)))
+                .setUserAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_ONLY)))
+                .setBrowseName(newQualifiedName(name))
+                .setDisplayName(LocalizedText.english(name))
+                .setDataType(initial instanceof Long ? Identifiers.Int64 : Identifiers.Double)
+                .setTypeDefinition(Identifiers.BaseDataVariableType)
+                .build();
+
+        node.setValue(new DataValue(new Variant(initial)));
+
+        Runnable update = () -> node.setValue(new DataValue(new Variant(value.get())));
+
+        getNodeManager().addNode(node);
+        folder.addOrganizes(node);
+
+        return update;
+    }
+
+    /**
+     * 以代码的方式创建CNC文件夹及其下的结点
+     *
+     * @return CNC文件夹结点
+     */
+    private UaFolderNode addCncFolder() {
         // Create a "HelloWorld" folder and add it to the node manager
         //创建一个folder，来容纳子节点
         NodeId folderNodeId = newNodeId("cnc");
@@ -161,52 +482,130 @@ public class CncNamespace extends ManagedNamespace {
         getNodeManager().addNode(node);
         folderNode.addOrganizes(node);
 
-        //region Set the EventNotifier bit on Server Node for Events.
-        UaNode serverNode = getServer()
-                .getAddressSpaceManager()
-                .getManagedNode(Identifiers.Server)
-                .orElse(null);
+        return folderNode;
+    }
 
-        if (serverNode instanceof ServerNode) {
-            ((ServerNode) serverNode).setEventNotifier(ubyte(1));
+    /**
+     * 创建HelloWorld文件夹及其下的示例结点
+     * <p>
+     * These are the scalar, array, dynamic, access-restricted and DataAccess variables of the Milo example server,
+     * the CustomDataType variable with its binary codec registered on the server, and the sqrt(x) and
+     * generateEvent(eventTypeId) methods.
+     */
+    private void addHelloWorldFolder() {
+        UaFolderNode folderNode = new UaFolderNode(
+                getNodeContext(),
+                newNodeId("HelloWorld"),
+                newQualifiedName("HelloWorld"),
+                LocalizedText.english("HelloWorld")
+        );
 
-            // Post a bogus Event every couple seconds
-            getServer().getScheduledExecutorService().scheduleAtFixedRate(() -> {
-                try {
-                    BaseEventNode eventNode = getServer().getEventFactory().createEvent(
-                            newNodeId(UUID.randomUUID()),
-                            Identifiers.BaseEventType
-                    );
+        getNodeManager().addNode(folderNode);
 
-                    eventNode.setBrowseName(new QualifiedName(1, "foo"));
-                    eventNode.setDisplayName(LocalizedText.english("foo"));
-                    eventNode.setEventId(ByteString.of(new byte[]{0, 1, 2, 3}));
-                    eventNode.setEventType(Identifiers.BaseEventType);
-                    eventNode.setSourceNode(serverNode.getNodeId());
-                    eventNode.setSourceName(serverNode.getDisplayName().getText());
-                    eventNode.setTime(DateTime.now());
-                    eventNode.setReceiveTime(DateTime.NULL_VALUE);
-                    eventNode.setMessage(LocalizedText.english("event message!"));
-                    eventNode.setSeverity(ushort(2));
+        folderNode.addReference(new Reference(
+                folderNode.getNodeId(),
+                Identifiers.Organizes,
+                Identifiers.ObjectsFolder.expanded(),
+                false
+        ));
 
-                    getServer().getEventBus().post(eventNode);
+        addVariableNodes(folderNode);
+        addCustomDataTypeVariable(folderNode);
+        addSqrtMethod(folderNode);
+        addGenerateEventMethod(folderNode);
+    }
 
-                    eventNode.delete();
-                } catch (Throwable e) {
-                    logger.error("Error creating EventNode: {}", e.getMessage(), e);
-                }
-            }, 0, 2, TimeUnit.SECONDS);
+    /**
+     * 从快照中加载命名空间，通过 -Dcnc.snapshot=文件路径 开启
+     * <p>
+     * The snapshot records each variable's attribute delegate, so the loaded nodes keep exactly the delegates they
+     * were exported with.
+     *
+     * @return {@code false} if the snapshot could not be loaded; nothing of it has been added then.
+     */
+    private boolean loadSnapshot(Path snapshot) {
+        try {
+            AddressSpaceSnapshot.load(getNodeContext(), getNamespaceIndex(), snapshot);
+            return true;
+        } catch (IOException e) {
+            logger.error("Error loading snapshot {}, building the namespace instead: {}", snapshot, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public AddressSpaceFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * 导入NodeSet2文件，通过 -Dcnc.nodesets=文件1,文件2 开启，按依赖顺序给出
+     * <p>
+     * Every namespace URI of a nodeset is added to the server's namespace table, and the nodes are kept in this
+     * namespace's NodeManager. Namespaces that the import adds to the table are served by this namespace from then
+     * on; a URI that was already registered, such as the standard namespace, stays with its owner, so nodes a
+     * nodeset adds to it can't be reached.
+     */
+    private void importNodeSets(String[] files) {
+        NodeSetImporter importer = new NodeSetImporter(getNodeContext(), uri -> {
+            UShort index = getServer().getNamespaceTable().getIndex(uri);
+
+            if (index == null) {
+                index = getServer().getNamespaceTable().addUri(uri);
+                importedNamespaces.add(index);
+            }
+
+            return index;
+        });
+
+        for (String file : files) {
+            try {
+                importer.importNodeSet(Paths.get(file.trim()));
+            } catch (IOException | XMLStreamException e) {
+                logger.error("Error importing nodeset {}: {}", file, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 保存快照，下次启动时直接加载
+     * <p>
+     * Called after the namespace is first built and again on shutdown, so values written in between are kept. The
+     * machines under "CNC/Machines" are not part of the snapshot; they belong to the model passed to
+     * {@link #reconfigure(CncModel)} and are created again from it.
+     */
+    private void exportSnapshot(NodeId rootNodeId, Path snapshot) {
+        NodeId machinesFolderId = newNodeId("CNC/Machines");
+
+        if (!getNodeManager().getNode(rootNodeId).isPresent()) {
+            logger.warn("Not exporting snapshot {}: {} does not exist", snapshot, rootNodeId);
+            return;
+        }
+
+        modelLock.readLock().lock();
+        try {
+            AddressSpaceSnapshot.export(
+                    getNodeManager(),
+                    getServer().getSerializationContext(),
+                    rootNodeId,
+                    machinesFolderId::equals,
+                    getNamespaceIndex(),
+                    snapshot
+            );
+        } catch (IOException e) {
+            logger.error("Error exporting snapshot {}: {}", snapshot, e.getMessage(), e);
+        } finally {
+            modelLock.readLock().unlock();
         }
-        //endregion
     }
 
     //region 只添加一个文件夹结点,以下可以暂时忽略
     /**
-     * 在根节点下添加对应的CNC定义结点，Demo版
+     * 添加机床的类型结点CNCType及其成员声明
      *
-     * @param rootFolder 文件夹结点
+     * @return 已注册的类型结点
      */
-    private void addCncObjectTypeAndInstance(UaFolderNode rootFolder) {
+    private UaObjectTypeNode addCncObjectType() {
         /*
         1.添加机床的类型结点
          */
@@ -279,27 +678,228 @@ public class CncNamespace extends ManagedNamespace {
         getNodeManager().addNode(cncName);
         getNodeManager().addNode(axisValue);
 
-        //创建一个cncNode实例
+        return cncTypeNode;
+    }
+
+    //将已创建好的实例及其引用添加到NodeManager和文件夹下，调用方持有写锁
+    private void addInstances(UaFolderNode folder, List<CncTypeTemplate.Instance> instances) {
+        for (CncTypeTemplate.Instance instance : instances) {
+            getNodeManager().addNode(instance.getObject());
+            instance.getMembers().forEach(getNodeManager()::addNode);
+            instance.getReferences().forEach(getNodeManager()::addReference);
+
+            folder.addOrganizes(instance.getObject());
+        }
+    }
+
+    /**
+     * 不重启服务器，增量地重新配置机床实例
+     * <p>
+     * The new model is diffed against the live machines under "CNC/Machines"; only missing machines are added and
+     * only machines no longer in the model are removed. New nodes are built before the model lock is taken, and the
+     * whole batch of insertions and removals happens under the write lock, so Browse, Read and Write see either the
+     * old or the new model, never a mix. Monitored items on untouched nodes keep running; items on removed nodes
+     * get a final Bad_NodeIdUnknown value.
+     * <p>
+     * Clients learn about the change from a GeneralModelChangeEvent reported by the Server object, posted while the
+     * write lock is still held, and from the NodeVersion property of "CNC/Machines", which is incremented whenever
+     * machines were added or removed. The initial machines can be given at startup with
+     * {@code -Dcnc.machines=名称1,名称2}.
+     *
+     * @param model 新的机床模型
+     * @return 本次增删的结果
+     */
+    public synchronized Reconfiguration reconfigure(CncModel model) {
+        if (machineTemplate == null) {
+            machineTemplate = CncTypeTemplate.compile(getCncObjectType(), getNamespaceIndex(), "CNC/Machines/");
+        }
+
+        List<String> added = model.getMachines().stream()
+                .filter(name -> !machines.containsKey(name))
+                .collect(Collectors.toList());
+
+        List<String> removed = machines.keySet().stream()
+                .filter(name -> !model.getMachines().contains(name))
+                .collect(Collectors.toList());
+
+        List<CncTypeTemplate.Instance> instances = machineTemplate.instantiateAll(
+                added,
+                added.size() >= PARALLEL_INSTANTIATION_THRESHOLD
+        );
+
+        int addedNodes = 0;
+        int removedNodes = 0;
+        int invalidatedItems = 0;
+
+        modelLock.writeLock().lock();
         try {
-            UaObjectNode cnc = (UaObjectNode) getNodeFactory().createNode(
-                    newNodeId("HelloWorld/CNC"),
-                    cncTypeNode.getNodeId(),
-                    false
+            UaFolderNode folder = getMachinesFolder();
+
+            addInstances(folder, instances);
+
+            for (CncTypeTemplate.Instance instance : instances) {
+                machines.put(instance.getObject().getBrowseName().getName(), instance);
+                addedNodes += 1 + instance.getMembers().size();
+            }
+
+            Set<NodeId> removedNodeIds = new HashSet<>();
+
+            for (String name : removed) {
+                CncTypeTemplate.Instance instance = machines.remove(name);
+
+                List<UaNode> nodes = new ArrayList<>(instance.getMembers());
+                nodes.add(instance.getObject());
+
+                for (UaNode node : nodes) {
+                    //delete() 同时删除结点的所有引用
+                    node.delete();
+                    removedNodes++;
+                    removedNodeIds.add(node.getNodeId());
+
+                    invalidatedItems += invalidateDataItems(node.getNodeId());
+                }
+            }
+
+            //别名直接指向结点，删除后不能再解析
+            if (!removedNodeIds.isEmpty()) {
+                nodeAliases.removeNodes(removedNodeIds);
+            }
+
+            if (!added.isEmpty() || !removed.isEmpty()) {
+                folder.setProperty(UaNode.NodeVersion, Long.toString(++machinesVersion));
+
+                postModelChangeEvent(folder, !added.isEmpty(), !removed.isEmpty());
+            }
+        } finally {
+            modelLock.writeLock().unlock();
+        }
+
+        Reconfiguration result = new Reconfiguration(added, removed, addedNodes, removedNodes, invalidatedItems);
+
+        logger.info("Reconfigured CNC namespace: {}", result);
+
+        return result;
+    }
+
+    //CNCType类型结点，第一次使用时创建
+    private UaObjectTypeNode getCncObjectType() {
+        return getNodeManager().getNode(newNodeId("ObjectTypes/CNCType"))
+                .filter(UaObjectTypeNode.class::isInstance)
+                .map(UaObjectTypeNode.class::cast)
+                .orElseGet(this::addCncObjectType);
+    }
+
+    /**
+     * 以NodeFactory创建一个CNCType实例，结点直接进入NodeManager，不加入任何文件夹
+     * <p>
+     * This is how machine instances were built before {@link CncTypeTemplate}. It is only kept so the benchmarks
+     * module can compare the footprint of both representations; the namespace itself never calls it.
+     *
+     * @param name BrowseName of the instance, also the last segment of its NodeId under "CNC/NodeFactory/".
+     */
+    UaObjectNode createCncInstanceWithNodeFactory(String name) throws UaException {
+        UaObjectNode object = (UaObjectNode) getNodeFactory().createNode(
+                newNodeId("CNC/NodeFactory/" + name),
+                getCncObjectType().getNodeId(),
+                false
+        );
+
+        object.setBrowseName(newQualifiedName(name));
+        object.setDisplayName(LocalizedText.english(name));
+
+        return object;
+    }
+
+    //"CNC/Machines" 文件夹，第一次重新配置时创建
+    private UaFolderNode getMachinesFolder() {
+        if (machinesFolder == null) {
+            machinesFolder = new UaFolderNode(
+                    getNodeContext(),
+                    newNodeId("CNC/Machines"),
+                    newQualifiedName("Machines"),
+                    LocalizedText.english("Machines")
             );
-            cnc.setBrowseName(newQualifiedName("CNC"));
-            cnc.setDisplayName(LocalizedText.english("MyCNC"));
 
-            //在根目录里添加cnc结点
-            rootFolder.addOrganizes(cnc);
-            cnc.addReference(new Reference(
-                    cnc.getNodeId(),
-                    Identifiers.Organizes,
-                    rootFolder.getNodeId().expanded(),
-                    false
+            getNodeManager().addNode(machinesFolder);
+
+            Optional<UaNode> cncFolder = getNodeManager().getNode(newNodeId("cnc"));
+
+            if (cncFolder.isPresent() && cncFolder.get() instanceof UaFolderNode) {
+                ((UaFolderNode) cncFolder.get()).addOrganizes(machinesFolder);
+            }
+        }
+
+        return machinesFolder;
+    }
+
+    /**
+     * 从Server对象发布GeneralModelChangeEvent，Affected为 "CNC/Machines" 文件夹
+     * <p>
+     * The instances themselves are not listed: a client only needs to know that the folder's children changed to
+     * browse it again.
+     */
+    private void postModelChangeEvent(UaFolderNode folder, boolean nodesAdded, boolean nodesDeleted) {
+        List<ModelChangeStructureDataType> changes = new ArrayList<>(2);
+
+        if (nodesAdded) {
+            changes.add(new ModelChangeStructureDataType(
+                    folder.getNodeId(),
+                    Identifiers.FolderType,
+                    ubyte(ModelChangeStructureVerbMask.NodeAdded.getValue()
+                            | ModelChangeStructureVerbMask.ReferenceAdded.getValue())
             ));
-        } catch (UaException e) {
-            logger.error("Error creating cnc instance: {}", e.getMessage(), e);
         }
+        if (nodesDeleted) {
+            changes.add(new ModelChangeStructureDataType(
+                    folder.getNodeId(),
+                    Identifiers.FolderType,
+                    ubyte(ModelChangeStructureVerbMask.NodeDeleted.getValue()
+                            | ModelChangeStructureVerbMask.ReferenceDeleted.getValue())
+            ));
+        }
+
+        try {
+            GeneralModelChangeEventNode eventNode = (GeneralModelChangeEventNode) getServer().getEventFactory()
+                    .createEvent(newNodeId(UUID.randomUUID()), Identifiers.GeneralModelChangeEventType);
+
+            byte[] eventId = new byte[16];
+            random.nextBytes(eventId);
+
+            eventNode.setBrowseName(newQualifiedName("GeneralModelChangeEvent"));
+            eventNode.setDisplayName(LocalizedText.english("GeneralModelChangeEvent"));
+            eventNode.setEventId(ByteString.of(eventId));
+            eventNode.setEventType(Identifiers.GeneralModelChangeEventType);
+            eventNode.setSourceNode(Identifiers.Server);
+            eventNode.setSourceName("Server");
+            eventNode.setTime(DateTime.now());
+            eventNode.setReceiveTime(DateTime.NULL_VALUE);
+            eventNode.setMessage(LocalizedText.english("CNC machines reconfigured"));
+            eventNode.setSeverity(ushort(100));
+            eventNode.setChanges(changes.toArray(new ModelChangeStructureDataType[0]));
+
+            getServer().getEventBus().post(eventNode);
+
+            eventNode.delete();
+        } catch (Throwable e) {
+            logger.error("Error posting GeneralModelChangeEvent: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 给被删除结点上的监控项发送最后一个 Bad_NodeIdUnknown 值
+     * <p>
+     * The items stay indexed until they are deleted, so if a machine with the same name is added again they resume
+     * with its new nodes and are told again if it goes away once more.
+     */
+    private int invalidateDataItems(NodeId nodeId) {
+        Set<DataItem> items = dataItemsByNode.get(nodeId);
+
+        if (items == null) return 0;
+
+        DataValue value = new DataValue(new StatusCode(StatusCodes.Bad_NodeIdUnknown));
+        items.forEach(item -> item.setValue(value));
+
+        return items.size();
     }
 
     private void addCncDataTypeVariable(UaFolderNode rootFolder){
@@ -971,9 +1571,261 @@ public class CncNamespace extends ManagedNamespace {
     //endregion
 
 
+    /**
+     * 浏览与重新配置互斥，并计入限流和服务指标。
+     * <p>
+     * Only the reference list is produced here; the SDK's BrowseHelper turns it into ReferenceDescriptions and pages
+     * them by requestedMaxReferencesPerNode, handing the remainder out through session continuation points.
+     */
+    @Override
+    public void browse(BrowseContext context, ViewDescription view, NodeId nodeId) {
+        if (!admissionControl.tryAcquire(context.getSession(), 1)) {
+            metrics.service(ServerMetrics.BROWSE).reject();
+            context.failure(new StatusCode(StatusCodes.Bad_TooManyOperations));
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        modelLock.readLock().lock();
+        try {
+            super.browse(context, view, nodeId);
+        } finally {
+            modelLock.readLock().unlock();
+
+            metrics.service(ServerMetrics.BROWSE).record(start, 1);
+        }
+    }
+
+    //读写与重新配置互斥，保证看到一致的模型
+    @Override
+    public void read(
+            ReadContext context,
+            Double maxAge,
+            TimestampsToReturn timestamps,
+            List<ReadValueId> readValueIds) {
+
+        if (!admissionControl.tryAcquire(context.getSession(), readValueIds.size())) {
+            metrics.service(ServerMetrics.READ).reject();
+            context.success(Collections.nCopies(
+                    readValueIds.size(),
+                    new DataValue(new StatusCode(StatusCodes.Bad_TooManyOperations))
+            ));
+            return;
+        }
+
+        //没有会话的读取来自订阅模型的采样，单独计数
+        boolean sampling = !context.getSession().isPresent();
+
+        ServiceEvents.OperationEvent event = sampling ? new ServiceEvents.Sample() : new ServiceEvents.Read();
+        event.begin();
+
+        long start = System.nanoTime();
+
+        modelLock.readLock().lock();
+        try {
+            if (readValueIds.stream().noneMatch(id -> isAlias(id.getNodeId()))) {
+                super.read(context, maxAge, timestamps, readValueIds);
+                return;
+            }
+
+            AttributeContext attributeContext = new AttributeContext(context);
+            List<DataValue> results = new ArrayList<>(readValueIds.size());
+
+            for (ReadValueId readValueId : readValueIds) {
+                UaNode node = resolve(context.getSession(), readValueId.getNodeId());
+
+                if (node != null) {
+                    results.add(node.readAttribute(
+                            attributeContext,
+                            readValueId.getAttributeId(),
+                            timestamps,
+                            readValueId.getIndexRange(),
+                            readValueId.getDataEncoding()
+                    ));
+                } else {
+                    results.add(new DataValue(new StatusCode(StatusCodes.Bad_NodeIdUnknown)));
+                }
+            }
+
+            context.success(results);
+        } finally {
+            modelLock.readLock().unlock();
+
+            metrics.service(sampling ? ServerMetrics.SAMPLE : ServerMetrics.READ).record(start, readValueIds.size());
+
+            if (!readValueIds.isEmpty()) {
+                commit(event, context.getSession(), readValueIds.get(0).getNodeId(), readValueIds.size());
+            }
+        }
+    }
+
+    @Override
+    public void write(WriteContext context, List<WriteValue> writeValues) {
+        if (!admissionControl.tryAcquire(context.getSession(), writeValues.size())) {
+            metrics.service(ServerMetrics.WRITE).reject();
+            context.success(Collections.nCopies(
+                    writeValues.size(),
+                    new StatusCode(StatusCodes.Bad_TooManyOperations)
+            ));
+            return;
+        }
+
+        ServiceEvents.Write event = new ServiceEvents.Write();
+        event.begin();
+
+        long start = System.nanoTime();
+
+        modelLock.readLock().lock();
+        try {
+            if (writeValues.stream().noneMatch(v -> isAlias(v.getNodeId()))) {
+                super.write(context, writeValues);
+                return;
+            }
+
+            AttributeContext attributeContext = new AttributeContext(context);
+            List<StatusCode> results = new ArrayList<>(writeValues.size());
+
+            for (WriteValue writeValue : writeValues) {
+                UaNode node = resolve(context.getSession(), writeValue.getNodeId());
+
+                if (node == null) {
+                    results.add(new StatusCode(StatusCodes.Bad_NodeIdUnknown));
+                    continue;
+                }
+
+                try {
+                    node.writeAttribute(
+                            attributeContext,
+                            writeValue.getAttributeId(),
+                            writeValue.getValue(),
+                            writeValue.getIndexRange()
+                    );
+
+                    results.add(StatusCode.GOOD);
+                } catch (UaException e) {
+                    results.add(e.getStatusCode());
+                }
+            }
+
+            context.success(results);
+        } finally {
+            modelLock.readLock().unlock();
+
+            metrics.service(ServerMetrics.WRITE).record(start, writeValues.size());
+
+            if (!writeValues.isEmpty()) {
+                commit(event, context.getSession(), writeValues.get(0).getNodeId(), writeValues.size());
+            }
+        }
+    }
+
+    @Override
+    public void call(CallContext context, List<CallMethodRequest> requests) {
+        if (!admissionControl.tryAcquire(context.getSession(), requests.size())) {
+            metrics.service(ServerMetrics.CALL).reject();
+            context.success(Collections.nCopies(
+                    requests.size(),
+                    new CallMethodResult(new StatusCode(StatusCodes.Bad_TooManyOperations), null, null, null)
+            ));
+            return;
+        }
+
+        ServiceEvents.MethodCall event = new ServiceEvents.MethodCall();
+        event.begin();
+
+        long start = System.nanoTime();
+
+        try {
+            super.call(context, requests);
+        } finally {
+            metrics.service(ServerMetrics.CALL).record(start, requests.size());
+
+            if (!requests.isEmpty()) {
+                commit(event, context.getSession(), requests.get(0).getMethodId(), requests.size());
+            }
+        }
+    }
+
+    //只在录制需要该事件时才格式化NodeId和会话
+    private void commit(ServiceEvents.OperationEvent event, Optional<Session> session, NodeId nodeId, int operations) {
+        if (event.shouldCommit()) {
+            event.set(nodeId, session, operations);
+            event.commit();
+        }
+    }
+
+    /**
+     * 返回已注册结点的数字别名
+     * <p>
+     * An alias is only valid for the session that registered it; any other session reading or writing it gets
+     * Bad_NodeIdUnknown. It resolves straight to the node, without the NodeManager lookup a NodeId needs. The attribute
+     * delegates still run, so access restrictions and dynamic values behave the same as through the NodeId. NodeIds of
+     * nodes that don't exist are handed back unchanged.
+     */
+    @Override
+    public void registerNodes(RegisterNodesContext context, List<NodeId> nodeIds) {
+        Optional<NodeId> sessionId = context.getSession().map(Session::getSessionId);
+
+        if (!sessionId.isPresent()) {
+            context.success(nodeIds);
+            return;
+        }
+
+        List<NodeId> registered = new ArrayList<>(nodeIds.size());
+
+        for (NodeId nodeId : nodeIds) {
+            UaNode node = isAlias(nodeId) ? null : getNodeManager().getNode(nodeId).orElse(null);
+            NodeId alias = node != null ? nodeAliases.register(sessionId.get(), node) : null;
+
+            registered.add(alias != null ? alias : nodeId);
+        }
+
+        context.success(registered);
+    }
+
+    @Override
+    public void unregisterNodes(UnregisterNodesContext context, List<NodeId> nodeIds) {
+        context.getSession().map(Session::getSessionId).ifPresent(
+                sessionId -> nodeIds.forEach(nodeId -> nodeAliases.unregister(sessionId, nodeId))
+        );
+
+        context.success(Collections.nCopies(nodeIds.size(), Unit.VALUE));
+    }
+
+    private boolean isAlias(NodeId nodeId) {
+        return nodeAliases.isAlias(nodeId);
+    }
+
+    //别名只在注册它的会话中有效，直接解析为结点；其它NodeId走NodeManager
+    private UaNode resolve(Optional<Session> session, NodeId nodeId) {
+        if (isAlias(nodeId)) {
+            return session.map(s -> nodeAliases.resolve(s.getSessionId(), nodeId)).orElse(null);
+        }
+
+        return getNodeManager().getNode(nodeId).orElse(null);
+    }
+
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    AdmissionControl getAdmissionControl() {
+        return admissionControl;
+    }
+
     //监听节点行为的方法
     @Override
     public void onDataItemsCreated(List<DataItem> dataItems) {
+        //超过上限的请求已由MonitoredItemAdmission拒绝，这里只计数
+        for (DataItem item : dataItems) {
+            admissionControl.addMonitoredItem();
+
+            dataItemsByNode
+                    .computeIfAbsent(item.getReadValueId().getNodeId(), id -> ConcurrentHashMap.newKeySet())
+                    .add(item);
+        }
+
         subscriptionModel.onDataItemsCreated(dataItems);
     }
 
@@ -984,6 +1836,16 @@ public class CncNamespace extends ManagedNamespace {
 
     @Override
     public void onDataItemsDeleted(List<DataItem> dataItems) {
+        for (DataItem item : dataItems) {
+            admissionControl.removeMonitoredItem();
+
+            Set<DataItem> items = dataItemsByNode.get(item.getReadValueId().getNodeId());
+
+            if (items != null) {
+                items.remove(item);
+            }
+        }
+
         subscriptionModel.onDataItemsDeleted(dataItems);
     }
 
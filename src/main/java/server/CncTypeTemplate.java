@@ -0,0 +1,218 @@
+package server;
+
+import com.google.common.collect.ImmutableList;
+import org.eclipse.milo.opcua.sdk.core.Reference;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaMethodNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNodeContext;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaObjectNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaObjectTypeNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 编译后的对象类型模板，用于批量创建实例。
+ * <p>
+ * {@code NodeFactory.createNode} walks the type definition again for every instance it creates. A template walks it
+ * once: the type's variable declarations, HasComponent and HasProperty alike, become {@link CncMemberDeclaration}s
+ * and the NodeId suffix of every member is precomputed, so stamping out an instance is only object allocation and
+ * string concatenation. Methods declared on the type are not copied: every instance references the type's method
+ * node, which the methods' invocation handlers already serve. Types with object members or any other kind of member
+ * are rejected by {@link #compile}, so nothing is silently left out of the instances.
+ * <p>
+ * Instances are built detached from the address space and can be built on many threads at once: the references of
+ * an instance are collected in {@link Instance#getReferences()} instead of being added to the NodeManager, and the
+ * namespace adds nodes and references together, under its own lock.
+ */
+public class CncTypeTemplate {
+
+    private final UaNodeContext context;
+    private final NodeId typeDefinitionId;
+    private final UShort namespaceIndex;
+    private final String instanceIdPrefix;
+    private final List<CncMemberDeclaration> members;
+    private final List<NodeId> methodIds;
+    private final String[] memberIdSuffixes;
+
+    private CncTypeTemplate(
+            UaNodeContext context,
+            NodeId typeDefinitionId,
+            UShort namespaceIndex,
+            String instanceIdPrefix,
+            List<CncMemberDeclaration> members,
+            List<NodeId> methodIds) {
+
+        this.context = context;
+        this.typeDefinitionId = typeDefinitionId;
+        this.namespaceIndex = namespaceIndex;
+        this.instanceIdPrefix = instanceIdPrefix;
+        this.members = members;
+        this.methodIds = methodIds;
+
+        memberIdSuffixes = new String[members.size()];
+        for (int i = 0; i < memberIdSuffixes.length; i++) {
+            memberIdSuffixes[i] = "." + members.get(i).getBrowseName().getName();
+        }
+    }
+
+    /**
+     * 编译类型结点
+     *
+     * @param typeNode         the object type; its members must already be in the NodeManager.
+     * @param namespaceIndex   namespace index of the instance NodeIds.
+     * @param instanceIdPrefix prefix of the instance NodeIds, e.g. {@code "CNC/Machines/"}.
+     * @return the compiled template.
+     * @throws IllegalArgumentException if the type has a member the template can't instantiate: an object, a member
+     *                                  that isn't in the NodeManager, or a variable referenced by anything other than
+     *                                  HasComponent or HasProperty.
+     */
+    public static CncTypeTemplate compile(UaObjectTypeNode typeNode, UShort namespaceIndex, String instanceIdPrefix) {
+        UaNodeContext context = typeNode.getNodeContext();
+
+        List<CncMemberDeclaration> members = new ArrayList<>();
+        List<NodeId> methodIds = new ArrayList<>();
+
+        for (Reference reference : typeNode.getReferences()) {
+            NodeId referenceTypeId = reference.getReferenceTypeId();
+
+            boolean component = referenceTypeId.equals(Identifiers.HasComponent);
+            boolean property = referenceTypeId.equals(Identifiers.HasProperty);
+
+            if (!reference.isForward() || !(component || property)) continue;
+
+            UaNode member = reference.getTargetNodeId().local()
+                    .flatMap(id -> context.getNodeManager().getNode(id))
+                    .orElseThrow(() -> new IllegalArgumentException(String.format(
+                            "member %s of %s is not in the NodeManager",
+                            reference.getTargetNodeId(), typeNode.getNodeId())));
+
+            if (member instanceof UaVariableNode) {
+                members.add(CncMemberDeclaration.from((UaVariableNode) member, referenceTypeId));
+            } else if (member instanceof UaMethodNode && component) {
+                methodIds.add(member.getNodeId());
+            } else {
+                throw new IllegalArgumentException(String.format(
+                        "member %s of %s is a %s, which templates can't instantiate; use the NodeFactory",
+                        member.getBrowseName().toParseableString(), typeNode.getNodeId(), member.getNodeClass()));
+            }
+        }
+
+        return new CncTypeTemplate(
+                context,
+                typeNode.getNodeId(),
+                namespaceIndex,
+                instanceIdPrefix,
+                ImmutableList.copyOf(members),
+                ImmutableList.copyOf(methodIds)
+        );
+    }
+
+    public List<CncMemberDeclaration> getMembers() {
+        return members;
+    }
+
+    public NodeId instanceId(String name) {
+        return new NodeId(namespaceIndex, instanceIdPrefix + name);
+    }
+
+    /**
+     * 创建一个实例，结点和引用都尚未添加到NodeManager
+     *
+     * @param name BrowseName and DisplayName of the instance, also the last segment of its NodeId.
+     * @return the instance object node, its member nodes and the references between them and the type.
+     */
+    public Instance instantiate(String name) {
+        String instanceId = instanceIdPrefix + name;
+        NodeId objectId = new NodeId(namespaceIndex, instanceId);
+
+        //不经过builder，builder会把HasTypeDefinition直接写入NodeManager
+        UaObjectNode object = new UaObjectNode(
+                context,
+                objectId,
+                new QualifiedName(namespaceIndex, name),
+                LocalizedText.english(name)
+        );
+
+        CncInstanceVariableNode[] memberNodes = new CncInstanceVariableNode[memberIdSuffixes.length];
+        List<Reference> references = new ArrayList<>(1 + 3 * memberNodes.length + 2 * methodIds.size());
+
+        references.add(new Reference(objectId, Identifiers.HasTypeDefinition, typeDefinitionId.expanded(), true));
+
+        for (int i = 0; i < memberNodes.length; i++) {
+            CncMemberDeclaration member = members.get(i);
+
+            CncInstanceVariableNode memberNode = new CncInstanceVariableNode(
+                    context,
+                    new NodeId(namespaceIndex, instanceId + memberIdSuffixes[i]),
+                    member
+            );
+
+            NodeId memberId = memberNode.getNodeId();
+
+            references.add(new Reference(
+                    memberId, Identifiers.HasTypeDefinition, member.getTypeDefinition().expanded(), true));
+            references.add(new Reference(objectId, member.getReferenceTypeId(), memberId.expanded(), true));
+            references.add(new Reference(memberId, member.getReferenceTypeId(), objectId.expanded(), false));
+
+            memberNodes[i] = memberNode;
+        }
+
+        for (NodeId methodId : methodIds) {
+            references.add(new Reference(objectId, Identifiers.HasComponent, methodId.expanded(), true));
+        }
+
+        return new Instance(object, ImmutableList.copyOf(memberNodes), references);
+    }
+
+    /**
+     * 批量创建实例
+     *
+     * @param names    instance names.
+     * @param parallel build the instances on the common fork-join pool, across all cores.
+     * @return the instances, in the order of {@code names}.
+     */
+    public List<Instance> instantiateAll(List<String> names, boolean parallel) {
+        Stream<String> stream = parallel ? names.parallelStream() : names.stream();
+
+        return stream.map(this::instantiate).collect(Collectors.toList());
+    }
+
+    public static class Instance {
+
+        private final UaObjectNode object;
+        private final List<CncInstanceVariableNode> members;
+        private final List<Reference> references;
+
+        Instance(UaObjectNode object, List<CncInstanceVariableNode> members, List<Reference> references) {
+            this.object = object;
+            this.members = members;
+            this.references = references;
+        }
+
+        public UaObjectNode getObject() {
+            return object;
+        }
+
+        public List<CncInstanceVariableNode> getMembers() {
+            return members;
+        }
+
+        /**
+         * @return the references of the instance and its members, to be added to the NodeManager with the nodes.
+         */
+        public List<Reference> getReferences() {
+            return references;
+        }
+
+    }
+
+}
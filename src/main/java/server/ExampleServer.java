@@ -10,9 +10,12 @@
 
 package server;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.eclipse.milo.opcua.sdk.server.OpcUaServer;
 import org.eclipse.milo.opcua.sdk.server.api.config.OpcUaServerConfig;
+import org.eclipse.milo.opcua.sdk.server.api.config.OpcUaServerConfigBuilder;
+import org.eclipse.milo.opcua.sdk.server.api.config.OpcUaServerConfigLimits;
 import org.eclipse.milo.opcua.sdk.server.identity.CompositeValidator;
 import org.eclipse.milo.opcua.sdk.server.identity.UsernameIdentityValidator;
 import org.eclipse.milo.opcua.sdk.server.identity.X509IdentityValidator;
@@ -26,6 +29,7 @@ import org.eclipse.milo.opcua.stack.core.security.SecurityPolicy;
 import org.eclipse.milo.opcua.stack.core.transport.TransportProfile;
 import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
 import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
 import org.eclipse.milo.opcua.stack.core.types.enumerated.MessageSecurityMode;
 import org.eclipse.milo.opcua.stack.core.types.structured.BuildInfo;
 import org.eclipse.milo.opcua.stack.core.util.CertificateUtil;
@@ -35,6 +39,8 @@ import org.eclipse.milo.opcua.stack.server.EndpointConfiguration;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
 import java.security.KeyPair;
 import java.security.Security;
 import java.security.cert.X509Certificate;
@@ -42,49 +48,94 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.eclipse.milo.opcua.sdk.server.api.config.OpcUaServerConfig.*;
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
 
 public class ExampleServer {
 
-    private static final int TCP_BIND_PORT = 12686;
-    private static final int HTTPS_BIND_PORT = 8443;
+    //Netty共享EventLoop的线程数，整个JVM只有一个
+    private static final String IO_THREADS_PROPERTY = "io.netty.eventLoopThreads";
 
     static {
         // Required for SecurityPolicy.Aes256_Sha256_RsaPss
         Security.addProvider(new BouncyCastleProvider());
     }
 
-    //定义单例的服务器,在整个程序中存在唯一的引用
-    private static ExampleServer exampleServer;
+    //已静态内部类实现，保证线程安全；第一次调用getInstance时才创建默认配置的服务器
+    private static class SingleServer{
+        static final ExampleServer exampleServer1;
 
-    static {
-        try {
-            exampleServer = new ExampleServer();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.out.println("Server is in crash");
-        }
-    }
+        //创建失败的原因，每次getInstance都会抛出
+        static final Exception failure;
 
-    //已静态内部类实现，保证线程安全
-    private static class SingleServer{
-        static final ExampleServer exampleServer1 = exampleServer;
+        static {
+            ExampleServer server = null;
+            Exception exception = null;
+
+            try {
+                server = new ExampleServer();
+            } catch (Exception e) {
+                exception = e;
+            }
+
+            exampleServer1 = server;
+            failure = exception;
+        }
     }
 
+    /**
+     * @return the server with the default configuration, created on first use.
+     * @throws IllegalStateException if it could not be created, with the original exception as its cause.
+     */
     public static ExampleServer getInstance() {
+        if (SingleServer.failure != null) {
+            throw new IllegalStateException("unable to create the default server", SingleServer.failure);
+        }
+
         return SingleServer.exampleServer1;
     }
 
     private final OpcUaServer server;
 
+    private final CncNamespace cncNamespace;
+
+    private final AdmissionControl admissionControl;
+
+    private final ServerConfig config;
+    private final int tcpBindPort;
+    private final int httpsBindPort;
+
+    //第一个端点的主机名，getEndpointUrl返回该端点
+    private final String endpointHostname = HostnameUtil.getHostname();
+
+    //服务调用线程池，未配置时为null，使用协议栈的共享线程池
+    private final ExecutorService executor;
+
     public ExampleServer() throws Exception {
-        File securityTempDir = new File(System.getProperty("java.io.tmpdir"), "security");
+        this(ServerConfig.defaults());
+    }
+
+    public ExampleServer(ServerConfig config) throws Exception {
+        this.config = config;
+
+        //端口为0时先取一个空闲端口，端点URL中必须是实际端口
+        tcpBindPort = resolvePort(config.getTcpBindPort());
+        httpsBindPort = resolvePort(config.getHttpsBindPort());
+
+        if (config.getIoThreads() > 0) {
+            configureIoThreads(config.getIoThreads());
+        }
+
+        File securityTempDir = config.getSecurityDir();
         if (!securityTempDir.exists() && !securityTempDir.mkdirs()) {
             throw new Exception("unable to create security temp dir: " + securityTempDir);
         }
         LoggerFactory.getLogger(getClass()).info("security temp dir: {}", securityTempDir.getAbsolutePath());
+        LoggerFactory.getLogger(getClass()).info("tcp port: {}, https port: {}", tcpBindPort, httpsBindPort);
 
         KeyStoreLoader loader = new KeyStoreLoader().load(securityTempDir);
 
@@ -103,7 +154,7 @@ public class ExampleServer {
 
         SelfSignedHttpsCertificateBuilder httpsCertificateBuilder = new SelfSignedHttpsCertificateBuilder(httpsKeyPair);
         httpsCertificateBuilder.setCommonName(HostnameUtil.getHostname());
-        HostnameUtil.getHostnames("0.0.0.0").forEach(httpsCertificateBuilder::addDnsName);
+        HostnameUtil.getHostnames(config.getBindAddress()).forEach(httpsCertificateBuilder::addDnsName);
         X509Certificate httpsCertificate = httpsCertificateBuilder.build();
 
         UsernameIdentityValidator identityValidator = new UsernameIdentityValidator(
@@ -136,7 +187,7 @@ public class ExampleServer {
 
         Set<EndpointConfiguration> endpointConfigurations = createEndpointConfigurations(certificate);
 
-        OpcUaServerConfig serverConfig = OpcUaServerConfig.builder()
+        OpcUaServerConfigBuilder serverConfigBuilder = OpcUaServerConfig.builder()
             .setApplicationUri(applicationUri)
             .setApplicationName(LocalizedText.english("Eclipse Milo OPC UA Example Server"))
             .setEndpoints(endpointConfigurations)
@@ -153,24 +204,74 @@ public class ExampleServer {
             .setHttpsKeyPair(httpsKeyPair)
             .setHttpsCertificate(httpsCertificate)
             .setIdentityValidator(new CompositeValidator(identityValidator, x509IdentityValidator))
-            .setProductUri("urn:eclipse:milo:example-server")
-            .build();
+            .setProductUri("urn:eclipse:milo:example-server");
+
+        //会话数超过上限时CreateSession返回Bad_TooManySessions
+        if (config.getMaxSessions() > 0) {
+            UInteger maxSessionCount = uint(config.getMaxSessions());
+
+            serverConfigBuilder.setLimits(new OpcUaServerConfigLimits() {
+                @Override
+                public UInteger getMaxSessionCount() {
+                    return maxSessionCount;
+                }
+            });
+        }
+
+        if (config.getExecutorThreads() > 0) {
+            executor = Executors.newFixedThreadPool(
+                config.getExecutorThreads(),
+                new ThreadFactoryBuilder().setNameFormat("cnc-server-" + tcpBindPort + "-%d").setDaemon(true).build()
+            );
+            serverConfigBuilder.setExecutor(executor);
+        } else {
+            executor = null;
+        }
+
+        server = new OpcUaServer(serverConfigBuilder.build());
 
-        server = new OpcUaServer(serverConfig);
+        admissionControl = new AdmissionControl(
+            config.getOperationsPerSecond(),
+            config.getOperationBurst(),
+            config.getMaxMonitoredItemsPerSession()
+        );
 
-        CncNamespace cncNamespace = new CncNamespace(server);
+        //超过监控项上限的CreateMonitoredItems请求返回Bad_TooManyMonitoredItems
+        if (config.getMaxMonitoredItemsPerSession() > 0) {
+            MonitoredItemAdmission.install(server, admissionControl);
+        }
+
+        cncNamespace = new CncNamespace(server, admissionControl, config.isDemoNodes());
         cncNamespace.startup();
     }
 
+    /**
+     * 设置Netty共享EventLoop的线程数，整个JVM只设置一次
+     * <p>
+     * Netty reads {@value #IO_THREADS_PROPERTY} when the stack's shared event loop is first created, so the property
+     * belongs to the process, not to a server. The first value wins, whether it came from here or from the command
+     * line; a different value requested later is logged and ignored.
+     */
+    private static synchronized void configureIoThreads(int ioThreads) {
+        String configured = System.getProperty(IO_THREADS_PROPERTY);
+
+        if (configured == null) {
+            System.setProperty(IO_THREADS_PROPERTY, String.valueOf(ioThreads));
+        } else if (!configured.equals(String.valueOf(ioThreads))) {
+            LoggerFactory.getLogger(ExampleServer.class).warn(
+                "{} is already {} for this JVM, ignoring ioThreads={}", IO_THREADS_PROPERTY, configured, ioThreads);
+        }
+    }
+
     private Set<EndpointConfiguration> createEndpointConfigurations(X509Certificate certificate) {
         Set<EndpointConfiguration> endpointConfigurations = new LinkedHashSet<>();
 
         List<String> bindAddresses = newArrayList();
-        bindAddresses.add("0.0.0.0");
+        bindAddresses.add(config.getBindAddress());
 
         Set<String> hostnames = new LinkedHashSet<>();
-        hostnames.add(HostnameUtil.getHostname());
-        hostnames.addAll(HostnameUtil.getHostnames("0.0.0.0"));
+        hostnames.add(endpointHostname);
+        hostnames.addAll(HostnameUtil.getHostnames(config.getBindAddress()));
 
         for (String bindAddress : bindAddresses) {
             for (String hostname : hostnames) {
@@ -230,30 +331,82 @@ public class ExampleServer {
         return endpointConfigurations;
     }
 
-    private static EndpointConfiguration buildTcpEndpoint(EndpointConfiguration.Builder base) {
+    private EndpointConfiguration buildTcpEndpoint(EndpointConfiguration.Builder base) {
         return base.copy()
             .setTransportProfile(TransportProfile.TCP_UASC_UABINARY)
-            .setBindPort(TCP_BIND_PORT)
+            .setBindPort(tcpBindPort)
             .build();
     }
 
-    private static EndpointConfiguration buildHttpsEndpoint(EndpointConfiguration.Builder base) {
+    private EndpointConfiguration buildHttpsEndpoint(EndpointConfiguration.Builder base) {
         return base.copy()
             .setTransportProfile(TransportProfile.HTTPS_UABINARY)
-            .setBindPort(HTTPS_BIND_PORT)
+            .setBindPort(httpsBindPort)
             .build();
     }
 
+    /*
+     * The stack needs the port before binding: it is part of every endpoint URL handed out by GetEndpoints. The
+     * ephemeral port is found by binding and releasing a socket, so another process or another server in the JVM
+     * can grab it in between; startup then fails with a BindException rather than silently serving on a different
+     * port, and callers that ask for ephemeral ports retry with a new server (see ServerCluster).
+     */
+    private static int resolvePort(int port) throws IOException {
+        if (port != 0) return port;
+
+        try (ServerSocket socket = new ServerSocket(0)) {
+            socket.setReuseAddress(true);
+            return socket.getLocalPort();
+        }
+    }
+
     public OpcUaServer getServer() {
         return server;
     }
 
+    public CncNamespace getCncNamespace() {
+        return cncNamespace;
+    }
+
+    public AdmissionControl getAdmissionControl() {
+        return admissionControl;
+    }
+
+    public ServerConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * @return the port the TCP endpoints bind to; the actual port when the config asked for an ephemeral one.
+     */
+    public int getTcpBindPort() {
+        return tcpBindPort;
+    }
+
+    public int getHttpsBindPort() {
+        return httpsBindPort;
+    }
+
+    /**
+     * @return the URL of the first TCP endpoint, on the server's hostname and actual port.
+     */
+    public String getEndpointUrl() {
+        return "opc.tcp://" + endpointHostname + ":" + tcpBindPort + "/milo";
+    }
+
     public CompletableFuture<OpcUaServer> startup() {
         return server.startup();
     }
 
     public CompletableFuture<OpcUaServer> shutdown() {
-        return server.shutdown();
+        //先关闭命名空间，快照中保存关闭时的值
+        cncNamespace.shutdown();
+
+        return server.shutdown().whenComplete((s, ex) -> {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        });
     }
 
 }
@@ -0,0 +1,116 @@
+package server;
+
+import org.eclipse.milo.opcua.sdk.server.OpcUaServer;
+import org.eclipse.milo.opcua.sdk.server.api.DataItem;
+import org.eclipse.milo.opcua.sdk.server.subscriptions.Subscription;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.UaException;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DiagnosticInfo;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.structured.CreateMonitoredItemsRequest;
+import org.eclipse.milo.opcua.stack.core.types.structured.CreateMonitoredItemsResponse;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoredItemCreateRequest;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoredItemCreateResult;
+import org.eclipse.milo.opcua.stack.server.services.MonitoredItemServiceSet;
+import org.eclipse.milo.opcua.stack.server.services.ServiceRequest;
+
+import java.util.Arrays;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+/**
+ * 在创建监控项之前检查会话的监控项上限。
+ * <p>
+ * The namespace only learns about data items after the server has already built their CreateMonitoredItems results,
+ * and {@code onCreateDataItem} is not told which session is asking. This service set sits in front of the server's own
+ * one instead: when the data items of a request would take the subscription's session over
+ * {@link AdmissionControl}'s cap, the request is answered right away with Bad_TooManyMonitoredItems for every item and
+ * nothing is created. The session's current items are counted on the subscriptions it holds at that moment, which
+ * includes subscriptions transferred to it and excludes those transferred away. Every other request, and the other
+ * monitored item services, go to the server unchanged.
+ */
+class MonitoredItemAdmission implements MonitoredItemServiceSet {
+
+    private final OpcUaServer server;
+    private final MonitoredItemServiceSet delegate;
+    private final AdmissionControl admissionControl;
+
+    private MonitoredItemAdmission(OpcUaServer server, AdmissionControl admissionControl) {
+        this.server = server;
+        this.delegate = server.getSessionManager();
+        this.admissionControl = admissionControl;
+    }
+
+    /**
+     * 替换服务器的监控项服务，在创建命名空间之前调用
+     */
+    static void install(OpcUaServer server, AdmissionControl admissionControl) {
+        server.getServer().addServiceSet(new MonitoredItemAdmission(server, admissionControl));
+    }
+
+    @Override
+    public void onCreateMonitoredItems(ServiceRequest service) throws UaException {
+        CreateMonitoredItemsRequest request = (CreateMonitoredItemsRequest) service.getRequest();
+
+        MonitoredItemCreateRequest[] itemsToCreate = request.getItemsToCreate();
+        Subscription subscription = server.getSubscriptions().get(request.getSubscriptionId());
+
+        //订阅不存在等错误仍由服务器自己返回
+        if (itemsToCreate == null || subscription == null) {
+            delegate.onCreateMonitoredItems(service);
+            return;
+        }
+
+        int dataItems = (int) Arrays.stream(itemsToCreate)
+                .filter(item -> !AttributeId.EventNotifier.isEqual(item.getItemToMonitor().getAttributeId()))
+                .count();
+
+        if (admissionControl.checkMonitoredItems(countDataItems(subscription.getSession().getSessionId()), dataItems)) {
+            delegate.onCreateMonitoredItems(service);
+            return;
+        }
+
+        MonitoredItemCreateResult[] results = new MonitoredItemCreateResult[itemsToCreate.length];
+        Arrays.fill(results, new MonitoredItemCreateResult(
+                new StatusCode(StatusCodes.Bad_TooManyMonitoredItems), uint(0), 0.0, uint(0), null));
+
+        service.setResponse(new CreateMonitoredItemsResponse(
+                service.createResponseHeader(),
+                results,
+                new DiagnosticInfo[0]
+        ));
+    }
+
+    //会话当前所有订阅上的数据监控项
+    private int countDataItems(NodeId sessionId) {
+        return server.getSubscriptions().values().stream()
+                .filter(s -> sessionId.equals(s.getSession().getSessionId()))
+                .mapToInt(s -> (int) s.getMonitoredItems().values().stream()
+                        .filter(item -> item instanceof DataItem)
+                        .count())
+                .sum();
+    }
+
+    @Override
+    public void onModifyMonitoredItems(ServiceRequest service) throws UaException {
+        delegate.onModifyMonitoredItems(service);
+    }
+
+    @Override
+    public void onDeleteMonitoredItems(ServiceRequest service) throws UaException {
+        delegate.onDeleteMonitoredItems(service);
+    }
+
+    @Override
+    public void onSetMonitoringMode(ServiceRequest service) throws UaException {
+        delegate.onSetMonitoringMode(service);
+    }
+
+    @Override
+    public void onSetTriggering(ServiceRequest service) throws UaException {
+        delegate.onSetTriggering(service);
+    }
+
+}
@@ -0,0 +1,150 @@
+package server;
+
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+/**
+ * RegisterNodes返回的数字别名。
+ * <p>
+ * An alias is a numeric NodeId in the namespace whose identifier is at least {@link #ALIAS_BASE}. Every session has
+ * its own alias table, and an alias only resolves for the session that registered it and only until it unregisters
+ * it. Alias values are taken from a counter and never handed out twice, so a stale alias held by a client can't come
+ * to mean a different node; once the counter runs out the NodeId is handed back unchanged, which RegisterNodes
+ * allows.
+ * <p>
+ * The table maps an alias straight to its node, so resolving one is a lookup in two concurrent maps without a lock
+ * and without going through the NodeManager. A session's table lives until the session closes, when the namespace
+ * calls {@link #removeSession}; nodes deleted from the address space are dropped through {@link #removeNodes}. Each
+ * session may hold at most {@code maxAliasesPerSession} aliases, beyond that the NodeId is handed back unchanged as
+ * well.
+ */
+public class NodeAliases {
+
+    // above any numeric identifier the namespace hands out itself
+    static final long ALIAS_BASE = 0x80000000L;
+
+    private static final long ALIAS_MAX = 0xFFFFFFFFL;
+
+    private final UShort namespaceIndex;
+    private final int maxAliasesPerSession;
+
+    private final Map<NodeId, SessionAliases> sessions = new ConcurrentHashMap<>();
+
+    private final AtomicLong nextAlias = new AtomicLong(ALIAS_BASE);
+
+    public NodeAliases(UShort namespaceIndex, int maxAliasesPerSession) {
+        this.namespaceIndex = namespaceIndex;
+        this.maxAliasesPerSession = maxAliasesPerSession;
+    }
+
+    /**
+     * 为会话注册别名，同一结点重复注册时返回同一个别名
+     *
+     * @param sessionId the registering session.
+     * @param node      the registered node.
+     * @return the alias, or {@code null} if the session has used up its alias budget.
+     */
+    public NodeId register(NodeId sessionId, UaNode node) {
+        SessionAliases aliases = sessions.computeIfAbsent(sessionId, id -> new SessionAliases());
+
+        //只有注册需要加锁，且只锁该会话
+        synchronized (aliases) {
+            NodeId alias = aliases.byNode.get(node.getNodeId());
+
+            if (alias != null) return alias;
+
+            if (aliases.byNode.size() >= maxAliasesPerSession) return null;
+
+            long value = nextAlias.getAndIncrement();
+
+            if (value > ALIAS_MAX) return null;
+
+            alias = new NodeId(namespaceIndex, uint(value));
+
+            aliases.byNode.put(node.getNodeId(), alias);
+            aliases.byAlias.put(alias, node);
+
+            return alias;
+        }
+    }
+
+    public void unregister(NodeId sessionId, NodeId alias) {
+        if (!isAlias(alias)) return;
+
+        SessionAliases aliases = sessions.get(sessionId);
+
+        if (aliases != null) {
+            synchronized (aliases) {
+                UaNode node = aliases.byAlias.remove(alias);
+
+                if (node != null) {
+                    aliases.byNode.remove(node.getNodeId());
+                }
+            }
+        }
+    }
+
+    /**
+     * 查找会话注册的别名
+     *
+     * @return the node {@code sessionId} registered as {@code alias}, or {@code null} if the session holds no such
+     * alias.
+     */
+    public UaNode resolve(NodeId sessionId, NodeId alias) {
+        SessionAliases aliases = sessions.get(sessionId);
+
+        return aliases != null ? aliases.byAlias.get(alias) : null;
+    }
+
+    /**
+     * 会话关闭时丢弃其别名表
+     */
+    public void removeSession(NodeId sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    /**
+     * 结点从地址空间删除后，指向它们的别名不再解析
+     */
+    public void removeNodes(Set<NodeId> nodeIds) {
+        for (SessionAliases aliases : sessions.values()) {
+            synchronized (aliases) {
+                aliases.byAlias.values().removeIf(node -> nodeIds.contains(node.getNodeId()));
+                aliases.byNode.keySet().removeAll(nodeIds);
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if {@code nodeId} is in the alias range of the namespace, whether or not it is registered.
+     */
+    public boolean isAlias(NodeId nodeId) {
+        Object identifier = nodeId.getIdentifier();
+
+        return identifier instanceof UInteger
+                && nodeId.getNamespaceIndex().equals(namespaceIndex)
+                && ((UInteger) identifier).longValue() >= ALIAS_BASE;
+    }
+
+    int getSessionCount() {
+        return sessions.size();
+    }
+
+    private static class SessionAliases {
+
+        //写入时持有this，读取不加锁
+        final Map<NodeId, NodeId> byNode = new ConcurrentHashMap<>();
+        final Map<NodeId, UaNode> byAlias = new ConcurrentHashMap<>();
+
+    }
+
+}
@@ -0,0 +1,640 @@
+package server;
+
+import com.google.common.base.MoreObjects;
+import org.eclipse.milo.opcua.sdk.core.Reference;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaDataTypeNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaMethodNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNodeContext;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaObjectNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaObjectTypeNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ubyte;
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ulong;
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ushort;
+
+/**
+ * 流式导入NodeSet2 XML文件（如 OPC 40502 CNC 伴随规范）。
+ * <p>
+ * The file is read with StAX, one element at a time, and parsed nodes are handed to worker threads in batches which
+ * build the {@link UaNode}s and add them and their references to the NodeManager. At most {@code maxPendingBatches}
+ * batches are in flight, so memory stays bounded by the batch size no matter how big the file is. If parsing fails
+ * the workers are stopped before the exception is thrown; nodes they already added stay in the NodeManager.
+ * <p>
+ * References are added by NodeId and only resolved when browsed, so a reference to a node further down the file, or
+ * in a nodeset imported later, needs no second pass. The HasTypeDefinition reference of an object or variable becomes
+ * its type definition, so it is not added twice. DisplayNames, Descriptions and LocalizedText values keep their
+ * locale. Objects, object types, variables, methods and data types are
+ * imported. A data type's encodings are ordinary objects linked by HasEncoding references, so they come along; the
+ * structure definitions are not read and no codecs are registered for them. Reference types, variable types and
+ * views are counted and skipped, as are structured and array values.
+ */
+public class NodeSetImporter {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    //每个工作线程最多排队的批次数
+    private static final int PENDING_BATCHES_PER_THREAD = 2;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final UaNodeContext context;
+    private final Function<String, UShort> namespaceMapper;
+    private final int batchSize;
+    private final int parallelism;
+    private final int maxPendingBatches;
+
+    /**
+     * @param context         the namespace's node context; nodes are added to its NodeManager.
+     * @param namespaceMapper maps a namespace URI of the nodeset to the server's namespace index.
+     */
+    public NodeSetImporter(UaNodeContext context, Function<String, UShort> namespaceMapper) {
+        this(
+                context,
+                namespaceMapper,
+                DEFAULT_BATCH_SIZE,
+                Runtime.getRuntime().availableProcessors(),
+                Runtime.getRuntime().availableProcessors() * PENDING_BATCHES_PER_THREAD
+        );
+    }
+
+    /**
+     * @param batchSize         nodes handed to a worker at once.
+     * @param parallelism       worker threads.
+     * @param maxPendingBatches batches parsed but not yet added; the parser waits while this many are in flight.
+     */
+    public NodeSetImporter(
+            UaNodeContext context,
+            Function<String, UShort> namespaceMapper,
+            int batchSize,
+            int parallelism,
+            int maxPendingBatches) {
+
+        this.context = context;
+        this.namespaceMapper = namespaceMapper;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.maxPendingBatches = maxPendingBatches;
+    }
+
+    public Result importNodeSet(Path file) throws IOException, XMLStreamException {
+        try (InputStream in = Files.newInputStream(file)) {
+            Result result = importNodeSet(in);
+
+            logger.info("Imported nodeset {}: {}", file, result);
+
+            return result;
+        }
+    }
+
+    public Result importNodeSet(InputStream in) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XMLStreamReader reader = factory.createXMLStreamReader(in);
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        Semaphore pendingBatches = new Semaphore(maxPendingBatches);
+
+        AtomicInteger nodes = new AtomicInteger();
+        AtomicInteger references = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        int skipped = 0;
+
+        Map<Integer, UShort> namespaces = new HashMap<>();
+        Map<String, String> aliases = new HashMap<>();
+
+        List<NodeRecord> batch = new ArrayList<>(batchSize);
+
+        boolean parsed = false;
+
+        try {
+            while (reader.hasNext() && failure.get() == null) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) continue;
+
+                String element = reader.getLocalName();
+
+                switch (element) {
+                    case "NamespaceUris":
+                        readNamespaces(reader, namespaces);
+                        break;
+
+                    case "Aliases":
+                        readAliases(reader, aliases);
+                        break;
+
+                    case "UAObject":
+                    case "UAObjectType":
+                    case "UAVariable":
+                    case "UAMethod":
+                    case "UADataType": {
+                        batch.add(readNode(reader, element, namespaces, aliases));
+
+                        if (batch.size() >= batchSize) {
+                            submit(executor, pendingBatches, batch, nodes, references, failure);
+                            batch = new ArrayList<>(batchSize);
+                        }
+                        break;
+                    }
+
+                    case "UAReferenceType":
+                    case "UAVariableType":
+                    case "UAView":
+                        skipElement(reader);
+                        skipped++;
+                        break;
+
+                    default:
+                        break;
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                submit(executor, pendingBatches, batch, nodes, references, failure);
+            }
+
+            parsed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new XMLStreamException("interrupted while importing nodeset", e);
+        } catch (IllegalArgumentException e) {
+            // malformed NodeIds, namespace indexes and numbers, NumberFormatException included
+            throw new XMLStreamException("invalid nodeset: " + e.getMessage(), reader.getLocation(), e);
+        } finally {
+            //出错时不再处理排队的批次，但要等正在执行的批次结束
+            if (parsed && failure.get() == null) {
+                executor.shutdown();
+            } else {
+                executor.shutdownNow();
+            }
+
+            boolean terminated = awaitTermination(executor);
+
+            reader.close();
+
+            if (parsed && !terminated) {
+                throw new XMLStreamException("interrupted while importing nodeset");
+            }
+        }
+
+        if (failure.get() != null) {
+            throw new XMLStreamException("failed to add nodeset nodes", failure.get());
+        }
+
+        return new Result(nodes.get(), references.get(), skipped);
+    }
+
+    /**
+     * @return {@code false} if interrupted before the workers finished; they are told to stop in that case.
+     */
+    private static boolean awaitTermination(ExecutorService executor) {
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void submit(
+            ExecutorService executor,
+            Semaphore pendingBatches,
+            List<NodeRecord> batch,
+            AtomicInteger nodes,
+            AtomicInteger references,
+            AtomicReference<Throwable> failure) throws InterruptedException {
+
+        // blocks the parser while too many batches are waiting, which is what bounds memory
+        pendingBatches.acquire();
+
+        executor.execute(() -> {
+            try {
+                for (NodeRecord record : batch) {
+                    UaNode node = buildNode(record);
+
+                    context.getNodeManager().addNode(node);
+
+                    for (ReferenceRecord r : record.references) {
+                        node.addReference(new Reference(node.getNodeId(), r.typeId, r.targetId.expanded(), r.forward));
+                    }
+
+                    nodes.incrementAndGet();
+                    references.addAndGet(record.references.size());
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            } finally {
+                pendingBatches.release();
+            }
+        });
+    }
+
+    private UaNode buildNode(NodeRecord record) {
+        switch (record.element) {
+            case "UAObject":
+                return UaObjectNode.builder(context)
+                        .setNodeId(record.nodeId)
+                        .setBrowseName(record.browseName)
+                        .setDisplayName(record.displayName)
+                        .setDescription(record.description)
+                        .setTypeDefinition(record.typeDefinition != null
+                                ? record.typeDefinition
+                                : Identifiers.BaseObjectType)
+                        .build();
+
+            case "UAObjectType":
+                return UaObjectTypeNode.builder(context)
+                        .setNodeId(record.nodeId)
+                        .setBrowseName(record.browseName)
+                        .setDisplayName(record.displayName)
+                        .setDescription(record.description)
+                        .setIsAbstract(record.isAbstract)
+                        .build();
+
+            case "UAVariable": {
+                UaVariableNode node = UaVariableNode.builder(context)
+                        .setNodeId(record.nodeId)
+                        .setBrowseName(record.browseName)
+                        .setDisplayName(record.displayName)
+                        .setDescription(record.description)
+                        .setDataType(record.dataType)
+                        .setValueRank(record.valueRank)
+                        .setAccessLevel(ubyte(record.accessLevel))
+                        .setUserAccessLevel(ubyte(record.userAccessLevel))
+                        .setTypeDefinition(record.typeDefinition != null
+                                ? record.typeDefinition
+                                : Identifiers.BaseDataVariableType)
+                        .build();
+
+                if (record.value != null) {
+                    node.setValue(new DataValue(record.value));
+                }
+
+                return node;
+            }
+
+            case "UAMethod":
+                return UaMethodNode.builder(context)
+                        .setNodeId(record.nodeId)
+                        .setBrowseName(record.browseName)
+                        .setDisplayName(record.displayName)
+                        .setDescription(record.description)
+                        .build();
+
+            case "UADataType":
+                return new UaDataTypeNode(
+                        context,
+                        record.nodeId,
+                        record.browseName,
+                        record.displayName,
+                        record.description,
+                        uint(0),
+                        uint(0),
+                        record.isAbstract
+                );
+
+            default:
+                throw new IllegalArgumentException("unsupported element: " + record.element);
+        }
+    }
+
+    //region XML
+    private void readNamespaces(XMLStreamReader reader, Map<Integer, UShort> namespaces) throws XMLStreamException {
+        int index = 1;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+
+            if (event == XMLStreamConstants.START_ELEMENT && "Uri".equals(reader.getLocalName())) {
+                namespaces.put(index++, namespaceMapper.apply(reader.getElementText().trim()));
+            } else if (event == XMLStreamConstants.END_ELEMENT && "NamespaceUris".equals(reader.getLocalName())) {
+                return;
+            }
+        }
+    }
+
+    private static void readAliases(XMLStreamReader reader, Map<String, String> aliases) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+
+            if (event == XMLStreamConstants.START_ELEMENT && "Alias".equals(reader.getLocalName())) {
+                String alias = reader.getAttributeValue(null, "Alias");
+                aliases.put(alias, reader.getElementText().trim());
+            } else if (event == XMLStreamConstants.END_ELEMENT && "Aliases".equals(reader.getLocalName())) {
+                return;
+            }
+        }
+    }
+
+    private NodeRecord readNode(
+            XMLStreamReader reader,
+            String element,
+            Map<Integer, UShort> namespaces,
+            Map<String, String> aliases) throws XMLStreamException {
+
+        NodeRecord record = new NodeRecord(element);
+
+        record.nodeId = parseNodeId(reader.getAttributeValue(null, "NodeId"), namespaces, aliases);
+        record.browseName = parseBrowseName(reader.getAttributeValue(null, "BrowseName"), namespaces);
+        record.displayName = LocalizedText.english(record.browseName.getName());
+        record.isAbstract = Boolean.parseBoolean(reader.getAttributeValue(null, "IsAbstract"));
+
+        String dataType = reader.getAttributeValue(null, "DataType");
+        record.dataType = dataType != null ? parseNodeId(dataType, namespaces, aliases) : Identifiers.BaseDataType;
+
+        String valueRank = reader.getAttributeValue(null, "ValueRank");
+        record.valueRank = valueRank != null ? Integer.parseInt(valueRank) : -1;
+
+        String accessLevel = reader.getAttributeValue(null, "AccessLevel");
+        record.accessLevel = accessLevel != null ? Integer.parseInt(accessLevel) : 1;
+
+        String userAccessLevel = reader.getAttributeValue(null, "UserAccessLevel");
+        record.userAccessLevel = userAccessLevel != null ? Integer.parseInt(userAccessLevel) : record.accessLevel;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+
+            if (event == XMLStreamConstants.END_ELEMENT && element.equals(reader.getLocalName())) {
+                break;
+            }
+
+            if (event != XMLStreamConstants.START_ELEMENT) continue;
+
+            switch (reader.getLocalName()) {
+                case "DisplayName": {
+                    String locale = reader.getAttributeValue(null, "Locale");
+                    record.displayName = new LocalizedText(locale, reader.getElementText().trim());
+                    break;
+                }
+
+                case "Description": {
+                    String locale = reader.getAttributeValue(null, "Locale");
+                    record.description = new LocalizedText(locale, reader.getElementText().trim());
+                    break;
+                }
+
+                case "Reference": {
+                    NodeId typeId = parseNodeId(reader.getAttributeValue(null, "ReferenceType"), namespaces, aliases);
+                    String isForward = reader.getAttributeValue(null, "IsForward");
+                    NodeId targetId = parseNodeId(reader.getElementText().trim(), namespaces, aliases);
+                    boolean forward = isForward == null || Boolean.parseBoolean(isForward);
+
+                    //由builder添加HasTypeDefinition，否则会有两个类型定义
+                    if (forward && Identifiers.HasTypeDefinition.equals(typeId)) {
+                        record.typeDefinition = targetId;
+                    } else {
+                        record.references.add(new ReferenceRecord(typeId, targetId, forward));
+                    }
+                    break;
+                }
+
+                case "Value":
+                    record.value = readValue(reader);
+                    break;
+
+                //数据类型的结构定义，其中的Description属于字段
+                case "Definition":
+                    skipElement(reader);
+                    break;
+
+                default:
+                    break;
+            }
+        }
+
+        return record;
+    }
+
+    /**
+     * 读取标量值，结构体和数组跳过
+     */
+    private static Variant readValue(XMLStreamReader reader) throws XMLStreamException {
+        Variant value = null;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+
+            if (event == XMLStreamConstants.END_ELEMENT && "Value".equals(reader.getLocalName())) {
+                return value;
+            }
+
+            if (event != XMLStreamConstants.START_ELEMENT) continue;
+
+            String type = reader.getLocalName();
+
+            if ("LocalizedText".equals(type)) {
+                value = new Variant(readLocalizedText(reader));
+            } else if (type.startsWith("ListOf") || "ExtensionObject".equals(type)) {
+                skipElement(reader);
+            } else {
+                value = parseScalar(type, reader.getElementText().trim());
+            }
+        }
+
+        return value;
+    }
+
+    private static Variant parseScalar(String type, String text) {
+        switch (type) {
+            case "Boolean":
+                return new Variant(Boolean.parseBoolean(text));
+            case "SByte":
+                return new Variant(Byte.parseByte(text));
+            case "Byte":
+                return new Variant(ubyte(Short.parseShort(text)));
+            case "Int16":
+                return new Variant(Short.parseShort(text));
+            case "UInt16":
+                return new Variant(ushort(Integer.parseInt(text)));
+            case "Int32":
+                return new Variant(Integer.parseInt(text));
+            case "UInt32":
+                return new Variant(uint(Long.parseLong(text)));
+            case "Int64":
+                return new Variant(Long.parseLong(text));
+            case "UInt64":
+                return new Variant(ulong(Long.parseUnsignedLong(text)));
+            case "Float":
+                return new Variant(Float.parseFloat(text));
+            case "Double":
+                return new Variant(Double.parseDouble(text));
+            case "String":
+                return new Variant(text);
+            default:
+                return null;
+        }
+    }
+
+    private static LocalizedText readLocalizedText(XMLStreamReader reader) throws XMLStreamException {
+        String locale = null;
+        String text = null;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+
+            if (event == XMLStreamConstants.START_ELEMENT && "Locale".equals(reader.getLocalName())) {
+                locale = reader.getElementText().trim();
+            } else if (event == XMLStreamConstants.START_ELEMENT && "Text".equals(reader.getLocalName())) {
+                text = reader.getElementText().trim();
+            } else if (event == XMLStreamConstants.END_ELEMENT && "LocalizedText".equals(reader.getLocalName())) {
+                break;
+            }
+        }
+
+        return new LocalizedText(locale, text);
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * 解析NodeId，别名先展开，nodeset中的命名空间序号换成服务器中的序号
+     */
+    private static NodeId parseNodeId(String text, Map<Integer, UShort> namespaces, Map<String, String> aliases) {
+        String s = aliases.getOrDefault(text, text);
+
+        if (s.startsWith("ns=")) {
+            int separator = s.indexOf(';');
+            int index = Integer.parseInt(s.substring(3, separator));
+            UShort mapped = namespaces.get(index);
+
+            if (mapped == null) {
+                throw new IllegalArgumentException("namespace index not declared in NamespaceUris: " + s);
+            }
+
+            return NodeId.parse("ns=" + mapped + s.substring(separator));
+        } else {
+            return NodeId.parse(s);
+        }
+    }
+
+    private static QualifiedName parseBrowseName(String text, Map<Integer, UShort> namespaces) {
+        int separator = text.indexOf(':');
+
+        if (separator > 0) {
+            try {
+                int index = Integer.parseInt(text.substring(0, separator));
+                UShort mapped = namespaces.get(index);
+
+                return new QualifiedName(mapped != null ? mapped : ushort(index), text.substring(separator + 1));
+            } catch (NumberFormatException ignored) {
+                // a colon in the name itself
+            }
+        }
+
+        return new QualifiedName(0, text);
+    }
+    //endregion
+
+    private static class NodeRecord {
+        final String element;
+        final List<ReferenceRecord> references = new ArrayList<>();
+
+        NodeId nodeId;
+        QualifiedName browseName;
+        LocalizedText displayName;
+        LocalizedText description;
+        NodeId typeDefinition;
+        boolean isAbstract;
+        NodeId dataType;
+        int valueRank;
+        int accessLevel;
+        int userAccessLevel;
+        Variant value;
+
+        NodeRecord(String element) {
+            this.element = element;
+        }
+    }
+
+    private static class ReferenceRecord {
+        final NodeId typeId;
+        final NodeId targetId;
+        final boolean forward;
+
+        ReferenceRecord(NodeId typeId, NodeId targetId, boolean forward) {
+            this.typeId = typeId;
+            this.targetId = targetId;
+            this.forward = forward;
+        }
+    }
+
+    public static class Result {
+
+        private final int nodes;
+        private final int references;
+        private final int skipped;
+
+        Result(int nodes, int references, int skipped) {
+            this.nodes = nodes;
+            this.references = references;
+            this.skipped = skipped;
+        }
+
+        public int getNodes() {
+            return nodes;
+        }
+
+        public int getReferences() {
+            return references;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this)
+                    .add("nodes", nodes)
+                    .add("references", references)
+                    .add("skipped", skipped)
+                    .toString();
+        }
+
+    }
+
+}
@@ -0,0 +1,66 @@
+package server;
+
+import com.google.common.base.MoreObjects;
+
+import java.util.List;
+
+/**
+ * {@link CncNamespace#reconfigure(CncModel)} 的结果。
+ */
+public class Reconfiguration {
+
+    private final List<String> addedMachines;
+    private final List<String> removedMachines;
+    private final int addedNodes;
+    private final int removedNodes;
+    private final int invalidatedItems;
+
+    public Reconfiguration(
+            List<String> addedMachines,
+            List<String> removedMachines,
+            int addedNodes,
+            int removedNodes,
+            int invalidatedItems) {
+
+        this.addedMachines = addedMachines;
+        this.removedMachines = removedMachines;
+        this.addedNodes = addedNodes;
+        this.removedNodes = removedNodes;
+        this.invalidatedItems = invalidatedItems;
+    }
+
+    public List<String> getAddedMachines() {
+        return addedMachines;
+    }
+
+    public List<String> getRemovedMachines() {
+        return removedMachines;
+    }
+
+    public int getAddedNodes() {
+        return addedNodes;
+    }
+
+    public int getRemovedNodes() {
+        return removedNodes;
+    }
+
+    /**
+     * @return the number of monitored items on removed nodes that were sent Bad_NodeIdUnknown.
+     */
+    public int getInvalidatedItems() {
+        return invalidatedItems;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("addedMachines", addedMachines)
+                .add("removedMachines", removedMachines)
+                .add("addedNodes", addedNodes)
+                .add("removedNodes", removedNodes)
+                .add("invalidatedItems", invalidatedItems)
+                .toString();
+    }
+
+}
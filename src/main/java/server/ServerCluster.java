@@ -0,0 +1,148 @@
+package server;
+
+import com.google.common.collect.ImmutableList;
+import org.eclipse.milo.opcua.stack.core.Stack;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.net.BindException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * 在同一个JVM中启动多个服务器，用于扩展和故障切换测试。
+ * <p>
+ * Every server binds ephemeral TCP and HTTPS ports and gets its own security directory under
+ * {@code ${java.io.tmpdir}/security-cluster}. Run with the number of servers as the only argument.
+ * <p>
+ * An ephemeral port is picked before the server binds it, so two servers starting at once can end up with the same
+ * one. A server whose bind fails is shut down and replaced by a new one with fresh ports, up to
+ * {@value #MAX_BIND_ATTEMPTS} times.
+ */
+public class ServerCluster {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServerCluster.class);
+
+    private static final int MAX_BIND_ATTEMPTS = 5;
+
+    private final List<ExampleServer> servers;
+
+    private ServerCluster(List<ExampleServer> servers) {
+        this.servers = servers;
+    }
+
+    /**
+     * 创建并启动{@code count}个服务器
+     */
+    public static ServerCluster start(int count) throws Exception {
+        File baseDir = new File(System.getProperty("java.io.tmpdir"), "security-cluster");
+
+        List<CompletableFuture<ExampleServer>> futures = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            ServerConfig config = ServerConfig.builder()
+                    .setTcpBindPort(0)
+                    .setHttpsBindPort(0)
+                    .setSecurityDir(new File(baseDir, "server-" + i))
+                    .build();
+
+            futures.add(startServer(config, 1));
+        }
+
+        List<ExampleServer> servers = new ArrayList<>(count);
+
+        try {
+            for (CompletableFuture<ExampleServer> future : futures) {
+                servers.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            //已启动的服务器随之关闭
+            futures.forEach(future -> future.thenAccept(ExampleServer::shutdown));
+            throw e;
+        }
+
+        return new ServerCluster(ImmutableList.copyOf(servers));
+    }
+
+    /**
+     * 启动一个服务器，端口被占用时换新端口重试
+     */
+    private static CompletableFuture<ExampleServer> startServer(ServerConfig config, int attempt) throws Exception {
+        ExampleServer server = new ExampleServer(config);
+
+        CompletableFuture<ExampleServer> started = new CompletableFuture<>();
+
+        server.startup().whenComplete((s, ex) -> {
+            if (ex == null) {
+                started.complete(server);
+                return;
+            }
+
+            server.shutdown();
+
+            if (!isBindFailure(ex) || attempt >= MAX_BIND_ATTEMPTS) {
+                started.completeExceptionally(ex);
+                return;
+            }
+
+            logger.warn("port {} was taken, retrying with a new server", server.getTcpBindPort());
+
+            try {
+                startServer(config, attempt + 1).whenComplete((retried, retryEx) -> {
+                    if (retryEx == null) {
+                        started.complete(retried);
+                    } else {
+                        started.completeExceptionally(retryEx);
+                    }
+                });
+            } catch (Exception e) {
+                started.completeExceptionally(e);
+            }
+        });
+
+        return started;
+    }
+
+    private static boolean isBindFailure(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BindException) return true;
+        }
+        return false;
+    }
+
+    public List<ExampleServer> getServers() {
+        return servers;
+    }
+
+    public List<String> getEndpointUrls() {
+        return servers.stream().map(ExampleServer::getEndpointUrl).collect(Collectors.toList());
+    }
+
+    public void shutdown() throws Exception {
+        CompletableFuture.allOf(
+                servers.stream().map(ExampleServer::shutdown).toArray(CompletableFuture[]::new)
+        ).get();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+
+        ServerCluster cluster = ServerCluster.start(count);
+
+        cluster.getEndpointUrls().forEach(url -> logger.info("server listening on {}", url));
+
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> future.complete(null)));
+
+        future.get();
+
+        cluster.shutdown();
+        Stack.releaseSharedResources();
+    }
+
+}
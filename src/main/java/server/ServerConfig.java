@@ -0,0 +1,249 @@
+package server;
+
+import com.google.common.base.MoreObjects;
+
+import java.io.File;
+
+/**
+ * {@link ExampleServer} 的启动配置。
+ * <p>
+ * A bind port of {@code 0} asks for an ephemeral port; the port actually chosen is reported by
+ * {@link ExampleServer#getTcpBindPort()} and {@link ExampleServer#getHttpsBindPort()}. Servers sharing a JVM need
+ * different security directories, since each one keeps its keystore and trust list there.
+ * <p>
+ * The transport settings are split between two thread pools. I/O threads are the Netty event loop that frames and
+ * decodes messages; the stack shares one loop between all servers and clients in the JVM, so {@code ioThreads} is a
+ * JVM-wide setting: the first server created with a non-zero value fixes it, later values are ignored with a
+ * warning, and it only takes effect if no server or client has started yet. Executor threads run the service calls
+ * themselves and are private to each server. A value of {@code 0} keeps the stack's default for either pool.
+ * <p>
+ * The admission limits are described in {@link AdmissionControl}; a limit of {@code 0} disables it. They are all off
+ * by default, so a server built with the defaults serves as many sessions, operations and monitored items as it
+ * can; deployments that need protection set the limits they want.
+ * <p>
+ * With {@code demoNodes} the namespace also builds the example's "HelloWorld" folder, which the JMH benchmarks and
+ * the load generator run against. It defaults to the {@code cnc.demoNodes} system property.
+ */
+public class ServerConfig {
+
+    public static final int DEFAULT_TCP_BIND_PORT = 12686;
+    public static final int DEFAULT_HTTPS_BIND_PORT = 8443;
+
+    public static final String DEMO_NODES_PROPERTY = "cnc.demoNodes";
+
+    private final String bindAddress;
+    private final int tcpBindPort;
+    private final int httpsBindPort;
+    private final File securityDir;
+    private final int ioThreads;
+    private final int executorThreads;
+    private final int maxSessions;
+    private final int operationsPerSecond;
+    private final int operationBurst;
+    private final int maxMonitoredItemsPerSession;
+    private final boolean demoNodes;
+
+    private ServerConfig(
+            String bindAddress,
+            int tcpBindPort,
+            int httpsBindPort,
+            File securityDir,
+            int ioThreads,
+            int executorThreads,
+            int maxSessions,
+            int operationsPerSecond,
+            int operationBurst,
+            int maxMonitoredItemsPerSession,
+            boolean demoNodes) {
+
+        this.bindAddress = bindAddress;
+        this.tcpBindPort = tcpBindPort;
+        this.httpsBindPort = httpsBindPort;
+        this.securityDir = securityDir;
+        this.ioThreads = ioThreads;
+        this.executorThreads = executorThreads;
+        this.maxSessions = maxSessions;
+        this.operationsPerSecond = operationsPerSecond;
+        this.operationBurst = operationBurst;
+        this.maxMonitoredItemsPerSession = maxMonitoredItemsPerSession;
+        this.demoNodes = demoNodes;
+    }
+
+    /**
+     * @return the configuration of the original single server: fixed ports and {@code ${java.io.tmpdir}/security}.
+     */
+    public static ServerConfig defaults() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public String getBindAddress() {
+        return bindAddress;
+    }
+
+    public int getTcpBindPort() {
+        return tcpBindPort;
+    }
+
+    public int getHttpsBindPort() {
+        return httpsBindPort;
+    }
+
+    public File getSecurityDir() {
+        return securityDir;
+    }
+
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    public int getExecutorThreads() {
+        return executorThreads;
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    public int getOperationsPerSecond() {
+        return operationsPerSecond;
+    }
+
+    public int getOperationBurst() {
+        return operationBurst;
+    }
+
+    public int getMaxMonitoredItemsPerSession() {
+        return maxMonitoredItemsPerSession;
+    }
+
+    public boolean isDemoNodes() {
+        return demoNodes;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("bindAddress", bindAddress)
+                .add("tcpBindPort", tcpBindPort)
+                .add("httpsBindPort", httpsBindPort)
+                .add("securityDir", securityDir)
+                .add("ioThreads", ioThreads)
+                .add("executorThreads", executorThreads)
+                .add("maxSessions", maxSessions)
+                .add("operationsPerSecond", operationsPerSecond)
+                .add("operationBurst", operationBurst)
+                .add("maxMonitoredItemsPerSession", maxMonitoredItemsPerSession)
+                .add("demoNodes", demoNodes)
+                .toString();
+    }
+
+    public static class Builder {
+
+        private String bindAddress = "0.0.0.0";
+        private int tcpBindPort = DEFAULT_TCP_BIND_PORT;
+        private int httpsBindPort = DEFAULT_HTTPS_BIND_PORT;
+        private File securityDir = new File(System.getProperty("java.io.tmpdir"), "security");
+        private int ioThreads = 0;
+        private int executorThreads = 0;
+        private int maxSessions = 0;
+        private int operationsPerSecond = 0;
+        private int operationBurst = 0;
+        private int maxMonitoredItemsPerSession = 0;
+        private boolean demoNodes = Boolean.getBoolean(DEMO_NODES_PROPERTY);
+
+        public Builder setBindAddress(String bindAddress) {
+            this.bindAddress = bindAddress;
+            return this;
+        }
+
+        public Builder setTcpBindPort(int tcpBindPort) {
+            this.tcpBindPort = tcpBindPort;
+            return this;
+        }
+
+        public Builder setHttpsBindPort(int httpsBindPort) {
+            this.httpsBindPort = httpsBindPort;
+            return this;
+        }
+
+        public Builder setSecurityDir(File securityDir) {
+            this.securityDir = securityDir;
+            return this;
+        }
+
+        public Builder setIoThreads(int ioThreads) {
+            this.ioThreads = ioThreads;
+            return this;
+        }
+
+        public Builder setExecutorThreads(int executorThreads) {
+            this.executorThreads = executorThreads;
+            return this;
+        }
+
+        public Builder setMaxSessions(int maxSessions) {
+            this.maxSessions = maxSessions;
+            return this;
+        }
+
+        /**
+         * @param operationsPerSecond sustained Read, Write, Browse and Call operations allowed per session.
+         * @param operationBurst      operations a session may issue at once after being idle.
+         */
+        public Builder setOperationRate(int operationsPerSecond, int operationBurst) {
+            this.operationsPerSecond = operationsPerSecond;
+            this.operationBurst = operationBurst;
+            return this;
+        }
+
+        public Builder setMaxMonitoredItemsPerSession(int maxMonitoredItemsPerSession) {
+            this.maxMonitoredItemsPerSession = maxMonitoredItemsPerSession;
+            return this;
+        }
+
+        public Builder setDemoNodes(boolean demoNodes) {
+            this.demoNodes = demoNodes;
+            return this;
+        }
+
+        public ServerConfig build() {
+            if (tcpBindPort < 0 || tcpBindPort > 0xFFFF) {
+                throw new IllegalArgumentException("tcpBindPort: " + tcpBindPort);
+            }
+            if (httpsBindPort < 0 || httpsBindPort > 0xFFFF) {
+                throw new IllegalArgumentException("httpsBindPort: " + httpsBindPort);
+            }
+
+            if (ioThreads < 0) {
+                throw new IllegalArgumentException("ioThreads: " + ioThreads);
+            }
+            if (executorThreads < 0) {
+                throw new IllegalArgumentException("executorThreads: " + executorThreads);
+            }
+
+            if (maxSessions < 0 || operationsPerSecond < 0 || operationBurst < 0 || maxMonitoredItemsPerSession < 0) {
+                throw new IllegalArgumentException("admission limits must not be negative");
+            }
+
+            return new ServerConfig(
+                    bindAddress,
+                    tcpBindPort,
+                    httpsBindPort,
+                    securityDir,
+                    ioThreads,
+                    executorThreads,
+                    maxSessions,
+                    operationsPerSecond,
+                    operationBurst,
+                    maxMonitoredItemsPerSession,
+                    demoNodes
+            );
+        }
+
+    }
+
+}
@@ -0,0 +1,67 @@
+package server;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * 服务器性能计数器。
+ * <p>
+ * Holds a {@link ServiceMetrics} for each service handled by the namespace and a set of gauges that are computed when
+ * read. The same instance backs the Diagnostics folder of {@link CncNamespace} and the Prometheus endpoint, and
+ * {@link #roll()} is called periodically by the namespace to close the current interval.
+ * <p>
+ * Reads without a session come from the subscription model sampling monitored items; they are counted under
+ * {@link #SAMPLE} so that {@link #READ} only reflects the Read service.
+ */
+public class ServerMetrics {
+
+    public static final String READ = "Read";
+    public static final String WRITE = "Write";
+    public static final String BROWSE = "Browse";
+    public static final String CALL = "Call";
+    public static final String SAMPLE = "Sample";
+
+    private final Map<String, ServiceMetrics> services = ImmutableMap.of(
+            READ, new ServiceMetrics(READ),
+            WRITE, new ServiceMetrics(WRITE),
+            BROWSE, new ServiceMetrics(BROWSE),
+            CALL, new ServiceMetrics(CALL),
+            SAMPLE, new ServiceMetrics(SAMPLE)
+    );
+
+    private final Map<String, DoubleSupplier> gauges = new ConcurrentSkipListMap<>();
+
+    public ServiceMetrics service(String name) {
+        ServiceMetrics metrics = services.get(name);
+
+        if (metrics == null) {
+            throw new IllegalArgumentException("unknown service: " + name);
+        }
+
+        return metrics;
+    }
+
+    public Collection<ServiceMetrics> getServices() {
+        return services.values();
+    }
+
+    /**
+     * 注册一个按需计算的指标，例如当前会话数
+     */
+    public void gauge(String name, DoubleSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    public Map<String, DoubleSupplier> getGauges() {
+        return gauges;
+    }
+
+    public void roll() {
+        services.values().forEach(ServiceMetrics::roll);
+    }
+
+}
@@ -0,0 +1,92 @@
+package server;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import org.eclipse.milo.opcua.sdk.server.Session;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+
+import java.util.Optional;
+
+/**
+ * 服务调用的JFR事件。
+ * <p>
+ * Events are created on every call but only filled in and committed when {@code shouldCommit()} says the recording
+ * wants them, so with JFR off, or the event disabled, the JIT reduces each call site to a couple of field stores.
+ * Read, Write and Sample default to a 1 ms threshold, which keeps a continuous recording small; lower it in the
+ * recording settings to see every call.
+ * <p>
+ * Sample events are the reads issued by the SDK's subscription model to sample monitored items; they are told apart
+ * from client reads by having no session.
+ */
+public final class ServiceEvents {
+
+    private ServiceEvents() {}
+
+    @Category({"OPC UA", "Namespace"})
+    @StackTrace(false)
+    public abstract static class OperationEvent extends Event {
+
+        @Label("Node")
+        @Description("NodeId of the first node in the request")
+        public String nodeId;
+
+        @Label("Session")
+        public String session;
+
+        @Label("Operations")
+        public int operations;
+
+        void set(NodeId nodeId, Optional<Session> session, int operations) {
+            this.nodeId = nodeId.toParseableString();
+            this.session = session.map(ServiceEvents::sessionName).orElse(null);
+            this.operations = operations;
+        }
+
+    }
+
+    @Name("cnc.Read")
+    @Label("OPC UA Read")
+    @Threshold("1 ms")
+    public static class Read extends OperationEvent {}
+
+    @Name("cnc.Write")
+    @Label("OPC UA Write")
+    @Threshold("1 ms")
+    public static class Write extends OperationEvent {}
+
+    @Name("cnc.Sample")
+    @Label("Monitored Item Sample")
+    @Threshold("1 ms")
+    public static class Sample extends OperationEvent {}
+
+    @Name("cnc.MethodCall")
+    @Label("OPC UA Method Call")
+    public static class MethodCall extends OperationEvent {}
+
+    @Name("cnc.EventPost")
+    @Label("OPC UA Event Post")
+    @Category({"OPC UA", "Namespace"})
+    @StackTrace(false)
+    public static class EventPost extends Event {
+
+        @Label("Event Type")
+        public String eventType;
+
+        @Label("Source Node")
+        public String sourceNode;
+
+        @Label("Session")
+        public String session;
+
+    }
+
+    public static String sessionName(Session session) {
+        return session.getSessionName() + " " + session.getSessionId().toParseableString();
+    }
+
+}
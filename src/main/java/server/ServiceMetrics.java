@@ -0,0 +1,115 @@
+package server;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个服务（Read、Write等）的计数和延迟分布。
+ * <p>
+ * Recording is lock-free: counters are {@link LongAdder}s and latencies go into an HdrHistogram {@link Recorder}.
+ * {@link #roll()} swaps out the histogram of the last interval; percentiles and the request rate always describe that
+ * interval, so every reader of the metrics sees the same numbers however often it reads them.
+ */
+public class ServiceMetrics {
+
+    private final String name;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    //所有请求的延迟总和，微秒
+    private final LongAdder latencyMicros = new LongAdder();
+
+    //延迟以微秒记录，3位有效数字
+    private final Recorder recorder = new Recorder(3);
+
+    private volatile Histogram interval = new Histogram(3);
+    private volatile double requestRate;
+
+    private long lastRollNanos = System.nanoTime();
+    private long lastRequests;
+
+    ServiceMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 记录一次完成的请求
+     *
+     * @param startNanos {@link System#nanoTime()} when the request started.
+     * @param operations number of operations (nodes, items) in the request.
+     */
+    public void record(long startNanos, int operations) {
+        requests.increment();
+        this.operations.add(operations);
+
+        long micros = Math.max(0, (System.nanoTime() - startNanos) / 1000);
+
+        recorder.recordValue(micros);
+        latencyMicros.add(micros);
+    }
+
+    /**
+     * 记录一次被准入控制拒绝的请求
+     */
+    public void reject() {
+        rejected.increment();
+    }
+
+    synchronized void roll() {
+        long now = System.nanoTime();
+        long count = requests.sum();
+
+        interval = recorder.getIntervalHistogram();
+        requestRate = (count - lastRequests) / ((now - lastRollNanos) / 1e9);
+
+        lastRollNanos = now;
+        lastRequests = count;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getOperations() {
+        return operations.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return requests per second during the last interval.
+     */
+    public double getRequestRate() {
+        return requestRate;
+    }
+
+    /**
+     * @return the latency at {@code percentile} (0-100) during the last interval, in milliseconds.
+     */
+    public double getLatencyMillis(double percentile) {
+        return interval.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * @return the summed latency of all requests since startup, in seconds; with {@link #getRequests()} this gives
+     * the average over any period.
+     */
+    public double getLatencySumSeconds() {
+        return latencyMicros.sum() / 1e6;
+    }
+
+    public double getMaxLatencyMillis() {
+        return interval.getMaxValue() / 1000.0;
+    }
+
+}
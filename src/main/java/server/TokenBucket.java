@@ -0,0 +1,54 @@
+package server;
+
+/**
+ * 令牌桶限流器。
+ * <p>
+ * Tokens refill continuously at {@code permitsPerSecond} up to {@code capacity}; a request takes one token per
+ * operation and is refused, not queued, when the bucket is short. A request larger than the whole bucket only needs a
+ * full bucket, otherwise it could never pass.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double permitsPerNano;
+
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double permitsPerSecond, double capacity) {
+        this.capacity = capacity;
+        this.permitsPerNano = permitsPerSecond / 1e9;
+
+        tokens = capacity;
+        lastRefill = System.nanoTime();
+    }
+
+    public synchronized boolean tryAcquire(int permits) {
+        refill();
+
+        double cost = Math.min(permits, capacity);
+
+        if (tokens < cost) return false;
+
+        tokens -= cost;
+
+        return true;
+    }
+
+    /**
+     * @return the fraction of the bucket currently used, from 0 (idle) to 1 (throttled).
+     */
+    public synchronized double getUtilization() {
+        refill();
+
+        return 1.0 - tokens / capacity;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * permitsPerNano);
+        lastRefill = now;
+    }
+
+}
@@ -0,0 +1,94 @@
+package server;
+
+import org.eclipse.milo.opcua.sdk.server.OpcUaServer;
+import org.eclipse.milo.opcua.sdk.server.api.NodeManager;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNodeContext;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ushort;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AddressSpaceSnapshotTest {
+
+    private static final UShort NAMESPACE_INDEX = ushort(2);
+
+    private static final int MAGIC = 0x434e4353;
+
+    @TempDir
+    Path dir;
+
+    private UaNodeContext context;
+    private NodeManager<UaNode> nodeManager;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void mockContext() {
+        nodeManager = mock(NodeManager.class);
+
+        OpcUaServer server = mock(OpcUaServer.class);
+
+        context = mock(UaNodeContext.class);
+        when(context.getServer()).thenReturn(server);
+        when(context.getNodeManager()).thenReturn(nodeManager);
+    }
+
+    @Test
+    void rejectsOtherVersions() throws IOException {
+        Path file = write(MAGIC, 1, 0, 0);
+
+        assertThrows(IOException.class, () -> AddressSpaceSnapshot.load(context, NAMESPACE_INDEX, file));
+    }
+
+    @Test
+    void truncatedFileFailsAsIOException() throws IOException {
+        // announces three nodes and ends right after
+        Path file = write(MAGIC, 2, 3);
+
+        assertThrows(IOException.class, () -> AddressSpaceSnapshot.load(context, NAMESPACE_INDEX, file));
+        verify(nodeManager, never()).addNode(any());
+    }
+
+    @Test
+    void exportWithoutRootKeepsTheFile() throws IOException {
+        Path file = write(MAGIC, 2, 0, 0);
+        byte[] before = Files.readAllBytes(file);
+
+        NodeId root = new NodeId(NAMESPACE_INDEX, "cnc");
+        when(nodeManager.getNode(root)).thenReturn(Optional.empty());
+
+        assertThrows(IOException.class, () -> AddressSpaceSnapshot.export(
+                nodeManager, null, root, nodeId -> false, NAMESPACE_INDEX, file));
+
+        assertArrayEquals(before, Files.readAllBytes(file));
+    }
+
+    private Path write(int... values) throws IOException {
+        Path file = dir.resolve("snapshot.bin");
+
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            for (int value : values) {
+                out.writeInt(value);
+            }
+        }
+
+        return file;
+    }
+
+}
@@ -0,0 +1,183 @@
+package server;
+
+import com.google.common.eventbus.Subscribe;
+import org.eclipse.milo.opcua.sdk.server.Session;
+import org.eclipse.milo.opcua.sdk.server.api.DataItem;
+import org.eclipse.milo.opcua.sdk.server.model.nodes.objects.GeneralModelChangeEventNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.structured.ModelChangeStructureDataType;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CncNamespaceReconfigureTest {
+
+    @TempDir
+    File securityDir;
+
+    private ExampleServer exampleServer;
+    private CncNamespace namespace;
+
+    private final List<ModelChangeStructureDataType[]> modelChanges = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void startServer() throws Exception {
+        ServerConfig config = ServerConfig.builder()
+                .setTcpBindPort(0)
+                .setHttpsBindPort(0)
+                .setSecurityDir(securityDir)
+                .setDemoNodes(false)
+                .build();
+
+        exampleServer = new ExampleServer(config);
+        exampleServer.startup().get();
+
+        namespace = exampleServer.getCncNamespace();
+
+        //事件结点在发布后即被删除，需要在回调中取出Changes
+        exampleServer.getServer().getEventBus().register(new Object() {
+            @Subscribe
+            public void onModelChange(GeneralModelChangeEventNode event) {
+                modelChanges.add(event.getChanges());
+            }
+        });
+    }
+
+    @AfterEach
+    void stopServer() throws Exception {
+        exampleServer.shutdown().get();
+    }
+
+    @Test
+    void addsOnlyMissingMachines() {
+        Reconfiguration first = namespace.reconfigure(CncModel.of("M1", "M2"));
+
+        assertEquals(Arrays.asList("M1", "M2"), first.getAddedMachines());
+        assertTrue(first.getRemovedMachines().isEmpty());
+        assertEquals(6, first.getAddedNodes());
+        assertTrue(node("CNC/Machines/M1").isPresent());
+        assertTrue(node("CNC/Machines/M2.AxisValue").isPresent());
+
+        Reconfiguration second = namespace.reconfigure(CncModel.of("M1", "M2", "M3"));
+
+        assertEquals(Collections.singletonList("M3"), second.getAddedMachines());
+        assertEquals(3, second.getAddedNodes());
+        assertTrue(node("CNC/Machines/M3.Name").isPresent());
+    }
+
+    @Test
+    void removesMachinesNoLongerInModel() {
+        namespace.reconfigure(CncModel.of("M1", "M2"));
+
+        Reconfiguration result = namespace.reconfigure(CncModel.of("M2"));
+
+        assertTrue(result.getAddedMachines().isEmpty());
+        assertEquals(Collections.singletonList("M1"), result.getRemovedMachines());
+        assertEquals(3, result.getRemovedNodes());
+        assertFalse(node("CNC/Machines/M1").isPresent());
+        assertFalse(node("CNC/Machines/M1.AxisValue").isPresent());
+        assertTrue(node("CNC/Machines/M2.AxisValue").isPresent());
+    }
+
+    @Test
+    void invalidatesItemsOnRemovedNodesOnly() {
+        namespace.reconfigure(CncModel.of("M1", "M2"));
+
+        DataItem removed = dataItem(nodeId("CNC/Machines/M1.AxisValue"));
+        DataItem kept = dataItem(nodeId("CNC/Machines/M2.AxisValue"));
+
+        namespace.onDataItemsCreated(Arrays.asList(removed, kept));
+
+        Reconfiguration result = namespace.reconfigure(CncModel.of("M2"));
+
+        assertEquals(1, result.getInvalidatedItems());
+        verify(removed).setValue(argThat(value -> value.getStatusCode().getValue() == StatusCodes.Bad_NodeIdUnknown));
+        verify(kept, never()).setValue(any(DataValue.class));
+    }
+
+    @Test
+    void invalidatesItemsCreatedBeforeTheirNode() {
+        DataItem early = dataItem(nodeId("CNC/Machines/M1.AxisValue"));
+
+        namespace.onDataItemsCreated(Collections.singletonList(early));
+
+        namespace.reconfigure(CncModel.of("M1"));
+        Reconfiguration result = namespace.reconfigure(CncModel.of());
+
+        assertEquals(1, result.getInvalidatedItems());
+    }
+
+    @Test
+    void postsModelChangeAndBumpsNodeVersion() {
+        namespace.reconfigure(CncModel.of("M1"));
+        String firstVersion = nodeVersion();
+
+        namespace.reconfigure(CncModel.of("M1"));
+        assertEquals(firstVersion, nodeVersion());
+        assertEquals(1, modelChanges.size());
+
+        namespace.reconfigure(CncModel.of("M2"));
+        assertEquals(2, modelChanges.size());
+        assertFalse(firstVersion.equals(nodeVersion()));
+
+        NodeId machinesFolder = nodeId("CNC/Machines");
+        ModelChangeStructureDataType[] changes = modelChanges.get(1);
+
+        assertEquals(2, changes.length);
+        for (ModelChangeStructureDataType change : changes) {
+            assertEquals(machinesFolder, change.getAffected());
+        }
+    }
+
+    private NodeId nodeId(String id) {
+        return new NodeId(namespace.getNamespaceIndex(), id);
+    }
+
+    private Optional<UaNode> node(String id) {
+        return exampleServer.getServer().getAddressSpaceManager().getManagedNode(nodeId(id));
+    }
+
+    private String nodeVersion() {
+        return node("CNC/Machines")
+                .map(node -> node.getProperty(UaNode.NodeVersion).orElse(null))
+                .orElse(null);
+    }
+
+    private static DataItem dataItem(NodeId nodeId) {
+        Session session = mock(Session.class);
+        when(session.getSessionId()).thenReturn(new NodeId(1, "session"));
+
+        DataItem item = mock(DataItem.class);
+        when(item.getSession()).thenReturn(session);
+        when(item.getReadValueId())
+                .thenReturn(new ReadValueId(nodeId, AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE));
+        when(item.getSamplingInterval()).thenReturn(100.0);
+
+        return item;
+    }
+
+}
@@ -0,0 +1,135 @@
+package server;
+
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ushort;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NodeAliasesTest {
+
+    private static final UShort NAMESPACE_INDEX = ushort(2);
+
+    private final NodeId session1 = new NodeId(1, "session-1");
+    private final NodeId session2 = new NodeId(1, "session-2");
+
+    private final UaNode axis = node("CNC/Axis");
+    private final UaNode spindle = node("CNC/Spindle");
+
+    @Test
+    void aliasResolvesForRegisteringSessionOnly() {
+        NodeAliases aliases = new NodeAliases(NAMESPACE_INDEX, 10);
+
+        NodeId alias = aliases.register(session1, axis);
+
+        assertNotNull(alias);
+        assertTrue(aliases.isAlias(alias));
+        assertFalse(aliases.isAlias(axis.getNodeId()));
+        assertEquals(axis, aliases.resolve(session1, alias));
+        assertNull(aliases.resolve(session2, alias));
+    }
+
+    @Test
+    void registeringTwiceReturnsSameAlias() {
+        NodeAliases aliases = new NodeAliases(NAMESPACE_INDEX, 10);
+
+        assertEquals(aliases.register(session1, axis), aliases.register(session1, axis));
+        assertNotEquals(aliases.register(session1, axis), aliases.register(session2, axis));
+    }
+
+    @Test
+    void unregisteredAliasIsNotReused() {
+        NodeAliases aliases = new NodeAliases(NAMESPACE_INDEX, 10);
+
+        NodeId stale = aliases.register(session1, axis);
+        aliases.unregister(session1, stale);
+
+        assertNull(aliases.resolve(session1, stale));
+
+        NodeId spindleAlias = aliases.register(session1, spindle);
+        NodeId axisAlias = aliases.register(session1, axis);
+
+        assertNotEquals(stale, spindleAlias);
+        assertNotEquals(stale, axisAlias);
+        assertNull(aliases.resolve(session1, stale));
+        assertEquals(spindle, aliases.resolve(session1, spindleAlias));
+    }
+
+    @Test
+    void unregisterByOtherSessionKeepsAlias() {
+        NodeAliases aliases = new NodeAliases(NAMESPACE_INDEX, 10);
+
+        NodeId alias = aliases.register(session1, axis);
+        aliases.unregister(session2, alias);
+
+        assertEquals(axis, aliases.resolve(session1, alias));
+    }
+
+    @Test
+    void sessionBudgetIsEnforced() {
+        NodeAliases aliases = new NodeAliases(NAMESPACE_INDEX, 1);
+
+        assertNotNull(aliases.register(session1, axis));
+        assertNull(aliases.register(session1, spindle));
+        assertNotNull(aliases.register(session2, spindle));
+    }
+
+    @Test
+    void closedSessionLosesItsAliases() {
+        NodeAliases aliases = new NodeAliases(NAMESPACE_INDEX, 10);
+
+        NodeId alias1 = aliases.register(session1, axis);
+        NodeId alias2 = aliases.register(session2, axis);
+
+        aliases.removeSession(session1);
+
+        assertNull(aliases.resolve(session1, alias1));
+        assertEquals(axis, aliases.resolve(session2, alias2));
+        assertEquals(1, aliases.getSessionCount());
+    }
+
+    @Test
+    void manySessionsKeepTheirAliases() {
+        NodeAliases aliases = new NodeAliases(NAMESPACE_INDEX, 10);
+
+        NodeId alias = aliases.register(session1, axis);
+
+        for (int i = 0; i < 5_000; i++) {
+            aliases.register(new NodeId(1, "session-" + (i + 3)), spindle);
+        }
+
+        assertEquals(axis, aliases.resolve(session1, alias));
+    }
+
+    @Test
+    void removedNodesNoLongerResolve() {
+        NodeAliases aliases = new NodeAliases(NAMESPACE_INDEX, 10);
+
+        NodeId axisAlias = aliases.register(session1, axis);
+        NodeId spindleAlias = aliases.register(session1, spindle);
+
+        aliases.removeNodes(Collections.singleton(axis.getNodeId()));
+
+        assertNull(aliases.resolve(session1, axisAlias));
+        assertEquals(spindle, aliases.resolve(session1, spindleAlias));
+        assertNotEquals(axisAlias, aliases.register(session1, axis));
+    }
+
+    private static UaNode node(String id) {
+        UaNode node = mock(UaNode.class);
+        when(node.getNodeId()).thenReturn(new NodeId(NAMESPACE_INDEX, id));
+        return node;
+    }
+
+}